@@ -2,6 +2,7 @@ package plugins.adufour.ezplug;
 
 import icy.system.thread.ThreadUtil;
 
+import java.awt.Component;
 import java.awt.Container;
 
 import javax.swing.SwingUtilities;
@@ -33,6 +34,12 @@ public abstract class EzComponent
      */
     private EzPanel     parent  = null;
     
+    /**
+     * The Swing components added to the interface by {@link #addTo(Container)}, recorded in
+     * incremental layout mode (see {@link EzDialog#setIncrementalLayout(boolean)})
+     */
+    private Component[] uiComponents;
+    
     protected EzComponent(String name)
     {
         this.name = name;
@@ -63,25 +70,106 @@ public abstract class EzComponent
      */
     public void setVisible(boolean state)
     {
+        if (visible == state) return;
+        
         visible = state;
+        
+        // the interface applies the change upon its next re-pack
+        if (isIncrementalLayout()) gui.visibilityChanged(this);
     }
     
     void addToContainer(final Container container)
     {
-        if (!visible) return;
+        final boolean incremental = isIncrementalLayout();
+        
+        if (!visible && !incremental) return;
         
         ThreadUtil.invoke(new Runnable()
         {
             @Override
             public void run()
             {
-                addTo(container);
+                if (incremental)
+                {
+                    attachTo(container);
+                    updateUIVisibility();
+                }
+                else addTo(container);
             }
         }, !SwingUtilities.isEventDispatchThread());
     }
     
     protected abstract void addTo(Container container);
     
+    /**
+     * Adds this component to the specified container (via {@link #addTo(Container)}), and records
+     * the Swing components it adds, so that they can be shown or hidden later on without
+     * rebuilding the container. This method must be called on the AWT event dispatch thread
+     * 
+     * @param container
+     *            the container to add this component to
+     */
+    final void attachTo(Container container)
+    {
+        int first = container.getComponentCount();
+        
+        addTo(container);
+        
+        Component[] added = new Component[container.getComponentCount() - first];
+        for (int i = 0; i < added.length; i++)
+            added[i] = container.getComponent(first + i);
+        
+        uiComponents = added;
+    }
+    
+    /**
+     * Shows or hides the Swing components of this component according to its current visibility
+     * state (and that of its parent panel). This method can be called from any thread
+     */
+    final void updateUIVisibility()
+    {
+        if (!SwingUtilities.isEventDispatchThread())
+        {
+            ThreadUtil.invokeLater(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    updateUIVisibility();
+                }
+            });
+            return;
+        }
+        
+        if (parent != null) parent.childVisibilityChanged(this);
+        else setUIComponentsVisible(visible);
+    }
+    
+    /**
+     * Shows or hides the Swing components recorded by {@link #attachTo(Container)} (if any). This
+     * method must be called on the AWT event dispatch thread
+     * 
+     * @param shown
+     *            <code>true</code> to show the components, <code>false</code> to hide them
+     */
+    final void setUIComponentsVisible(boolean shown)
+    {
+        if (uiComponents == null) return;
+        
+        // hiding a component revalidates its container only
+        for (Component component : uiComponents)
+            component.setVisible(shown);
+    }
+    
+    /**
+     * @return <code>true</code> if this component belongs to an interface in incremental layout
+     *         mode (see {@link EzDialog#setIncrementalLayout(boolean)})
+     */
+    final boolean isIncrementalLayout()
+    {
+        return gui != null && gui.isIncrementalLayout();
+    }
+    
     /**
      * Gets a reference to the graphical interface containing this variable
      * 
@@ -160,6 +248,7 @@ public abstract class EzComponent
     
     protected void dispose()
     {
+        this.uiComponents = null;
         this.gui = null;
         this.parent = null;
     }
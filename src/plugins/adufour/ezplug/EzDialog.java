@@ -29,7 +29,9 @@ import java.io.File;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -38,6 +40,7 @@ import javax.swing.JDialog;
 import javax.swing.JInternalFrame;
 import javax.swing.JPanel;
 import javax.swing.JSeparator;
+import javax.swing.SwingUtilities;
 
 import org.pushingpixels.substance.api.ComponentState;
 import org.pushingpixels.substance.api.SubstanceColorScheme;
@@ -75,6 +78,59 @@ public class EzDialog extends IcyFrame implements FoldListener
                                                            }
                                                        };
     
+    private final Object         repackLock            = new Object();
+    
+    /**
+     * Number of pending calls to {@link #holdRepack()} (repacking is suspended while positive)
+     */
+    private int                  repackHolds           = 0;
+    
+    /**
+     * Indicates whether a repack was requested while repacking was suspended
+     */
+    private boolean              repackRequested       = false;
+    
+    /**
+     * Indicates whether {@link #scheduledPackingTask} is waiting on the AWT event dispatch thread
+     */
+    private boolean              repackScheduled       = false;
+    
+    /**
+     * Task posted by {@link #requestRepack()}. It is posted at most once until it runs, and does
+     * nothing if the interface was re-packed in the meantime
+     */
+    private final Runnable       scheduledPackingTask  = new Runnable()
+                                                       {
+                                                           @Override
+                                                           public void run()
+                                                           {
+                                                               synchronized (repackLock)
+                                                               {
+                                                                   if (!repackScheduled) return;
+                                                               }
+                                                               
+                                                               repack(true);
+                                                           }
+                                                       };
+    
+    /**
+     * Indicates whether the parameter panel is updated incrementally (see
+     * {@link #setIncrementalLayout(boolean)})
+     */
+    private volatile boolean     incrementalLayout     = false;
+    
+    /**
+     * Indicates whether the structure of the interface has changed since the parameter panel was
+     * last built (only used in incremental layout mode)
+     */
+    private volatile boolean     rebuildNeeded         = true;
+    
+    /**
+     * Components whose visibility state has changed since the last re-pack (only used in
+     * incremental layout mode, guarded by {@link #repackLock})
+     */
+    private final Set<EzComponent> visibilityChanges   = new LinkedHashSet<EzComponent>();
+    
     public EzDialog(String title)
     {
         this(title, true);
@@ -193,6 +249,7 @@ public class EzDialog extends IcyFrame implements FoldListener
     public void addComponent(Component component)
     {
         components.add(component);
+        layoutChanged();
     }
     
     public void addEzComponent(EzComponent component)
@@ -227,6 +284,123 @@ public class EzDialog extends IcyFrame implements FoldListener
         }
         
         if (isSingle) components.add(component);
+        
+        layoutChanged();
+    }
+    
+    /**
+     * Sets whether the parameter panel should be updated incrementally. By default, each re-pack
+     * of the interface removes and rebuilds all the components of the parameter panel, which can be
+     * slow for interfaces with many parameters. In incremental layout mode, the panel is built
+     * once with all components (including hidden ones), and showing or hiding a component (or
+     * folding a group) only changes the visibility of the corresponding Swing components, so that
+     * only the affected part of the panel is laid out again. The panel is rebuilt only if
+     * components are added to the interface.<br/>
+     * Note: in this mode, all variable editors are created and activated when the panel is built,
+     * even if their variable is hidden.
+     * 
+     * @param incremental
+     *            <code>true</code> to update the parameter panel incrementally, <code>false</code>
+     *            to rebuild it entirely on each re-pack (default)
+     */
+    public void setIncrementalLayout(boolean incremental)
+    {
+        if (incrementalLayout == incremental) return;
+        
+        incrementalLayout = incremental;
+        layoutChanged();
+        requestRepack();
+    }
+    
+    /**
+     * @return <code>true</code> if the parameter panel is updated incrementally (see
+     *         {@link #setIncrementalLayout(boolean)}), <code>false</code> otherwise
+     */
+    public boolean isIncrementalLayout()
+    {
+        return incrementalLayout;
+    }
+    
+    /**
+     * Indicates that components were added to the interface, and that the parameter panel must be
+     * rebuilt on the next re-pack
+     */
+    void layoutChanged()
+    {
+        rebuildNeeded = true;
+    }
+    
+    /**
+     * Requests the interface to be re-packed on the AWT event dispatch thread. Requests are merged
+     * until the interface is actually re-packed, so that any number of requests issued before the
+     * event dispatch thread gets to it (e.g. when several parameters change at once) result in a
+     * single re-pack. If repacking is currently suspended (see {@link #holdRepack()}), the request
+     * is postponed until repacking is resumed.
+     */
+    public void requestRepack()
+    {
+        synchronized (repackLock)
+        {
+            if (repackHolds > 0)
+            {
+                repackRequested = true;
+                return;
+            }
+            
+            if (repackScheduled) return;
+            
+            repackScheduled = true;
+        }
+        
+        SwingUtilities.invokeLater(scheduledPackingTask);
+    }
+    
+    /**
+     * Notifies this interface that the visibility state of the specified component has changed,
+     * and requests a re-pack (see {@link #requestRepack()}). In incremental layout mode, the
+     * re-pack only shows or hides the components notified since the previous re-pack, instead of
+     * rebuilding the parameter panel
+     * 
+     * @param component
+     *            the component whose visibility state has changed
+     */
+    void visibilityChanged(EzComponent component)
+    {
+        synchronized (repackLock)
+        {
+            visibilityChanges.add(component);
+        }
+        
+        requestRepack();
+    }
+    
+    /**
+     * Suspends repacking of the interface until the matching call to {@link #releaseRepack()}.
+     * Repack requests issued in the meantime via {@link #requestRepack()} are merged into a single
+     * one
+     */
+    void holdRepack()
+    {
+        synchronized (repackLock)
+        {
+            repackHolds++;
+        }
+    }
+    
+    /**
+     * Resumes repacking of the interface (see {@link #holdRepack()}), and triggers a single repack
+     * if any was requested while it was suspended
+     */
+    void releaseRepack()
+    {
+        synchronized (repackLock)
+        {
+            if (repackHolds == 0 || --repackHolds > 0 || !repackRequested) return;
+            
+            repackRequested = false;
+        }
+        
+        requestRepack();
     }
     
     @Override
@@ -247,8 +421,26 @@ public class EzDialog extends IcyFrame implements FoldListener
     {
 //        int width = getWidth();
         
+        List<EzComponent> changedComponents = null;
+        
         if (updateParametersPanel)
         {
+            // this re-pack also serves the pending requests
+            synchronized (repackLock)
+            {
+                repackScheduled = false;
+                repackRequested = false;
+                
+                changedComponents = new ArrayList<EzComponent>(visibilityChanges);
+                visibilityChanges.clear();
+            }
+        }
+        
+        // in incremental mode, visibility changes have already been applied to the components
+        if (updateParametersPanel && (!incrementalLayout || rebuildNeeded))
+        {
+            rebuildNeeded = false;
+            
             jPanelParameters.removeAll();
             
             GridBagConstraints gbc = new GridBagConstraints();
@@ -314,6 +506,12 @@ public class EzDialog extends IcyFrame implements FoldListener
             jPanelParameters.validate();
             jPanelParameters.repaint();
         }
+        else if (changedComponents != null)
+        {
+            // only show or hide the components whose visibility has changed
+            for (EzComponent component : changedComponents)
+                component.updateUIVisibility();
+        }
         
         if (isDialog)
         {
@@ -19,6 +19,7 @@ import icy.resource.icon.IcyIcon;
 import icy.system.thread.ThreadUtil;
 import plugins.adufour.vars.lang.Var;
 import plugins.adufour.vars.lang.VarDouble;
+import plugins.adufour.vars.util.DoubleVarListener;
 import plugins.adufour.vars.util.VarListener;
 
 public class EzGUI extends EzDialog implements ActionListener
@@ -47,10 +48,10 @@ public class EzGUI extends EzDialog implements ActionListener
     
     private JProgressBar jProgressBar;
     
-    private final VarListener<Double> statusProgressListener = new VarListener<Double>()
+    private final DoubleVarListener statusProgressListener = new DoubleVarListener()
     {
         @Override
-        public void valueChanged(Var<Double> source, Double oldValue, final Double newValue)
+        public void valueChanged(VarDouble source, double oldValue, final double newValue)
         {
             ThreadUtil.invokeLater(new Runnable()
             {
@@ -64,12 +65,6 @@ public class EzGUI extends EzDialog implements ActionListener
                 }
             });
         }
-        
-        @Override
-        public void referenceChanged(Var<Double> source, Var<? extends Double> oldReference, Var<? extends Double> newReference)
-        {
-        
-        }
     };
     
     private final VarListener<String> statusMessageListener = new VarListener<String>()
@@ -1,12 +1,16 @@
 package plugins.adufour.ezplug;
 
+import icy.system.thread.ThreadUtil;
+
 import java.awt.FontMetrics;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.util.ArrayList;
 
+import javax.swing.SwingUtilities;
 import javax.swing.border.TitledBorder;
 
+import plugins.adufour.vars.util.ListenerList;
+
 /**
  * Class defining a group of EzComponents, which will appear in the interface within a titled box.
  * 
@@ -19,9 +23,15 @@ public class EzGroup extends EzPanel
         void foldStateChanged(boolean state);
     }
     
-    private final FoldHandler             foldHandler = new FoldHandler();
+    private final FoldHandler                foldHandler = new FoldHandler();
     
-    private final ArrayList<FoldListener> listeners   = new ArrayList<EzGroup.FoldListener>();
+    private final ListenerList<FoldListener> listeners   = new ListenerList<FoldListener>(FoldListener.class);
+    
+    /**
+     * Indicates whether the components of this group have been added to its container (in
+     * incremental layout mode, this is deferred until the group is unfolded)
+     */
+    private boolean                          componentsBuilt;
     
     /**
      * Creates a new EzGroup with the given box title and set of ezComponents. Each component will
@@ -62,7 +72,16 @@ public class EzGroup extends EzPanel
     @Override
     protected void buildPanel()
     {
-        if (foldHandler.isFolded)
+        if (isIncrementalLayout())
+        {
+            // components of a folded group are built when it is first unfolded
+            if (foldHandler.isFolded) container.removeAll();
+            else super.buildPanel();
+            
+            componentsBuilt = !foldHandler.isFolded;
+            container.setBorder(foldHandler.isFolded ? foldHandler.foldedBorder : foldHandler.unfoldedBorder);
+        }
+        else if (foldHandler.isFolded)
         {
             container.removeAll();
             container.setBorder(foldHandler.foldedBorder);
@@ -74,6 +93,39 @@ public class EzGroup extends EzPanel
         }
     }
     
+    @Override
+    void childVisibilityChanged(EzComponent child)
+    {
+        child.setUIComponentsVisible(child.isVisible() && !foldHandler.isFolded);
+    }
+    
+    /**
+     * Shows or hides the components of this group according to its folded state, in incremental
+     * layout mode (see {@link EzDialog#setIncrementalLayout(boolean)})
+     */
+    private void updateFoldedLayout()
+    {
+        if (!isIncrementalLayout()) return;
+        
+        ThreadUtil.invoke(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (!foldHandler.isFolded && !componentsBuilt)
+                {
+                    EzGroup.super.buildPanel();
+                    componentsBuilt = true;
+                }
+                
+                container.setBorder(foldHandler.isFolded ? foldHandler.foldedBorder : foldHandler.unfoldedBorder);
+                
+                for (EzComponent component : EzGroup.this)
+                    childVisibilityChanged(component);
+            }
+        }, !SwingUtilities.isEventDispatchThread());
+    }
+    
     public void dispose()
     {
         listeners.clear();
@@ -85,14 +137,7 @@ public class EzGroup extends EzPanel
     
     private void fireFoldStateChanged(boolean state)
     {
-        final ArrayList<FoldListener> listenersCopy;
-        
-        synchronized (listeners)
-        {
-            listenersCopy = new ArrayList<FoldListener>(listeners);
-        }
-        
-        for (FoldListener listener : listenersCopy)
+        for (FoldListener listener : listeners.getListeners())
             listener.foldStateChanged(state);
     }
     
@@ -115,6 +160,7 @@ public class EzGroup extends EzPanel
         if (folded == foldHandler.isFolded) return;
         
         foldHandler.isFolded = folded;
+        updateFoldedLayout();
         fireFoldStateChanged(folded);
         foldHandler.adjustToolTip();
     }
@@ -146,6 +192,7 @@ public class EzGroup extends EzPanel
             }
             
             isFolded = !isFolded;
+            updateFoldedLayout();
             fireFoldStateChanged(isFolded);
             adjustToolTip();
         }
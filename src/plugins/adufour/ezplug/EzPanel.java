@@ -137,6 +137,9 @@ public class EzPanel extends EzComponent implements Iterable<EzComponent>
         
         for (EzComponent ezComponent : ezComponents)
             components.add(ezComponent);
+        
+        EzDialog ui = getUI();
+        if (ui != null) ui.layoutChanged();
     }
     
     @Override
@@ -148,10 +151,33 @@ public class EzPanel extends EzComponent implements Iterable<EzComponent>
     protected void buildPanel()
     {
         container.removeAll();
-        for (EzComponent ezComponent : components)
+        
+        if (isIncrementalLayout())
+        {
+            // add all components, and hide them as necessary
+            for (EzComponent ezComponent : components)
+            {
+                ezComponent.attachTo(container);
+                childVisibilityChanged(ezComponent);
+            }
+        }
+        else for (EzComponent ezComponent : components)
             if (ezComponent.isVisible()) ezComponent.addTo(container);
     }
     
+    /**
+     * Called in incremental layout mode (see {@link EzDialog#setIncrementalLayout(boolean)}) when
+     * the visibility of a component of this panel has changed, in order to show or hide it without
+     * rebuilding the panel. This method is called on the AWT event dispatch thread
+     * 
+     * @param child
+     *            the component of this panel whose visibility has changed
+     */
+    void childVisibilityChanged(EzComponent child)
+    {
+        child.setUIComponentsVisible(child.isVisible());
+    }
+    
     @Override
     protected void addTo(Container parentContainer)
     {
@@ -14,6 +14,7 @@ import icy.plugin.interface_.PluginImageAnalysis;
 import icy.plugin.interface_.PluginLibrary;
 import icy.system.IcyHandledException;
 import icy.type.value.IntegerValue;
+import plugins.adufour.vars.lang.Var;
 import plugins.adufour.vars.util.VarException;
 
 /**
@@ -210,6 +211,54 @@ public abstract class EzPlug extends Plugin implements PluginImageAnalysis, Plug
         }
     }
     
+    /**
+     * Runs the specified code as a single transaction on the parameters of this EzPlug. Parameter
+     * listeners are not notified of the changes made by the specified code until it returns, after
+     * which each modified parameter fires a single event (with its original and final value), and
+     * the interface is re-packed only once. This is typically used to apply a set of parameter
+     * values at once (e.g. a preset or a parameter file).
+     * 
+     * @param updates
+     *            the code modifying the parameters
+     * @see Var#beginBatch()
+     */
+    public void batchUpdate(Runnable updates)
+    {
+        EzGUI g = getUI();
+        
+        if (g != null) g.holdRepack();
+        
+        Throwable failure = null;
+        
+        Var.beginBatch();
+        try
+        {
+            updates.run();
+        }
+        catch (Throwable t)
+        {
+            failure = t;
+            throw t;
+        }
+        finally
+        {
+            try
+            {
+                Var.commitBatch();
+            }
+            catch (Throwable t)
+            {
+                // do not mask the failure of the updates
+                if (failure == null) throw t;
+                failure.addSuppressed(t);
+            }
+            finally
+            {
+                if (g != null) g.releaseRepack();
+            }
+        }
+    }
+    
     /**
      * Generates the user interface of this EzPlug. Note that the window is not shown on screen
      * (this can be done by calling the {@link #showUI()} method.
@@ -222,13 +271,22 @@ public abstract class EzPlug extends Plugin implements PluginImageAnalysis, Plug
         // incorporate user-defined parameters
         initialize();
         
+        // fire listeners declared in the initialize method (the resulting repack requests are
+        // merged and served by the packing below)
+        ezgui.holdRepack();
+        try
+        {
+            for (EzVar<?> var : ezVars.values())
+                var.fireVariableChangedInternal();
+        }
+        finally
+        {
+            ezgui.releaseRepack();
+        }
+        
         // pack the frame
         ezgui.repack(true);
         
-        // fire listeners declared in the initialize method
-        for (EzVar<?> var : ezVars.values())
-            var.fireVariableChangedInternal();
-            
         addIcyFrame(ezgui);
     }
     
@@ -376,11 +434,18 @@ public abstract class EzPlug extends Plugin implements PluginImageAnalysis, Plug
      * @param file
      * @see EzVarIO
      */
-    public void loadParameters(File file)
+    public void loadParameters(final File file)
     {
         try
         {
-            EzVarIO.load(this, file, ezVars);
+            batchUpdate(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    EzVarIO.load(EzPlug.this, file, ezVars);
+                }
+            });
         }
         catch (EzException e)
         {
@@ -2,6 +2,7 @@ package plugins.adufour.ezplug;
 
 import plugins.adufour.vars.lang.VarDouble;
 import plugins.adufour.vars.lang.VarString;
+import plugins.adufour.vars.util.DoubleVarListener;
 import plugins.adufour.vars.util.VarListener;
 
 /**
@@ -32,6 +33,18 @@ public class EzStatus
         progress.addListener(listener);
     }
     
+    /**
+     * Registers a primitive listener to the progress value (the progress value is not boxed when
+     * notifying such listeners)
+     * 
+     * @param listener
+     *            the listener to register
+     */
+    public void addProgressListener(DoubleVarListener listener)
+    {
+        progress.addListener(listener);
+    }
+    
     /**
      * Registers a listener to the message value
      * 
@@ -66,7 +79,7 @@ public class EzStatus
      */
     public double getProgressValue()
     {
-        return progress.getValue();
+        return progress.getDouble();
     }
     
     /**
@@ -104,6 +117,17 @@ public class EzStatus
         progress.addListener(listener);
     }
     
+    /**
+     * Unregisters a primitive listener of the progress value
+     * 
+     * @param listener
+     *            the listener to unregister
+     */
+    public void removeProgressListener(DoubleVarListener listener)
+    {
+        progress.removeListener(listener);
+    }
+    
     /**
      * Unregisters a listener of the message value
      * 
@@ -133,6 +157,6 @@ public class EzStatus
      */
     public void setCompletion(double completion)
     {
-        this.progress.setValue(completion);
+        this.progress.setDouble(completion);
     }
 }
@@ -1,10 +1,17 @@
 package plugins.adufour.ezplug;
 
+import java.awt.Component;
 import java.awt.GridBagLayout;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JTabbedPane;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 /**
  * GUI component for EzPlug that displays a number of tab pages. <br/>
@@ -26,6 +33,31 @@ public class EzTabs extends EzPanel
         }
     }
     
+    /**
+     * The page of each tab (created once, and reused whenever the panel is rebuilt)
+     */
+    private final Map<EzComponent, JPanel> tabPanels  = new HashMap<EzComponent, JPanel>();
+    
+    /**
+     * The tabs whose page has been filled, i.e. that have been selected at least once (the
+     * components of the other tabs, and notably their editors, are not created until then)
+     */
+    private final Set<EzComponent>         loadedTabs = new HashSet<EzComponent>();
+    
+    private final ChangeListener           tabHandler = new ChangeListener()
+                                                      {
+                                                          @Override
+                                                          public void stateChanged(ChangeEvent e)
+                                                          {
+                                                              if (building || !loadSelectedTab()) return;
+                                                              
+                                                              EzDialog ui = getUI();
+                                                              if (ui != null) ui.requestRepack();
+                                                          }
+                                                      };
+    
+    private boolean                        building   = false;
+    
     /**
      * Create a new component to store tab pages.
      * 
@@ -38,6 +70,7 @@ public class EzTabs extends EzPanel
         super(uniqueID);
         
         ((JTabbedPane) container).setTabPlacement(tabPlacement.tabPlacement);
+        ((JTabbedPane) container).addChangeListener(tabHandler);
     }
     
     @Override
@@ -48,24 +81,105 @@ public class EzTabs extends EzPanel
     
     @Override
     protected void buildPanel()
+    {
+        boolean incremental = isIncrementalLayout();
+        
+        building = true;
+        try
+        {
+            // pages are only filled once their tab has been selected
+            for (EzComponent tab : this)
+            {
+                JPanel tabPanel = tabPanels.get(tab);
+                
+                if (tabPanel == null)
+                {
+                    tabPanel = new JPanel(new GridBagLayout());
+                    tabPanels.put(tab, tabPanel);
+                }
+                else tabPanel.removeAll();
+                
+                if (loadedTabs.contains(tab) && (incremental || tab.isVisible())) fillTab(tab, tabPanel);
+            }
+            
+            updateTabs();
+            loadSelectedTab();
+        }
+        finally
+        {
+            building = false;
+        }
+    }
+    
+    @Override
+    void childVisibilityChanged(EzComponent child)
+    {
+        updateTabs();
+    }
+    
+    /**
+     * Shows the pages of the visible tabs, without rebuilding them
+     */
+    private void updateTabs()
     {
         JTabbedPane tabs = (JTabbedPane) container;
         
-        int currentTab = tabs.getSelectedIndex();
+        Component currentTab = tabs.getSelectedComponent();
         
-        container.removeAll();
+        tabs.removeAll();
         
         for (EzComponent tab : this)
-            if (tab.isVisible())
-            {
-                JPanel tabPanel = new JPanel(new GridBagLayout());
-                tab.addTo(tabPanel);
-                tabs.addTab(tab.name, tabPanel);
-            }
+        {
+            JPanel tabPanel = tabPanels.get(tab);
+            if (tab.isVisible() && tabPanel != null) tabs.addTab(tab.name, tabPanel);
+        }
+        
+        if (currentTab != null && tabs.indexOfComponent(currentTab) >= 0)
+        {
+            tabs.setSelectedComponent(currentTab);
+        }
+    }
+    
+    /**
+     * Fills the page of the selected tab if it has not been done yet
+     * 
+     * @return <code>true</code> if the page was filled, <code>false</code> otherwise
+     */
+    private boolean loadSelectedTab()
+    {
+        Component selectedPanel = ((JTabbedPane) container).getSelectedComponent();
+        
+        if (selectedPanel == null) return false;
         
-        if (currentTab >= 0 && currentTab < tabs.getTabCount())
+        for (EzComponent tab : this)
         {
-            tabs.setSelectedIndex(currentTab);
+            JPanel tabPanel = tabPanels.get(tab);
+            
+            if (tabPanel != selectedPanel) continue;
+            
+            if (!loadedTabs.add(tab)) return false;
+            
+            fillTab(tab, tabPanel);
+            tabPanel.revalidate();
+            return true;
         }
+        
+        return false;
+    }
+    
+    private void fillTab(EzComponent tab, JPanel tabPanel)
+    {
+        if (isIncrementalLayout()) tab.attachTo(tabPanel);
+        else tab.addTo(tabPanel);
+    }
+    
+    @Override
+    protected void dispose()
+    {
+        ((JTabbedPane) container).removeChangeListener(tabHandler);
+        tabPanels.clear();
+        loadedTabs.clear();
+        
+        super.dispose();
     }
 }
@@ -12,6 +12,9 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Set;
 
 import javax.swing.ImageIcon;
@@ -21,13 +24,14 @@ import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
-import javax.swing.SwingUtilities;
 
 import plugins.adufour.vars.gui.VarEditor;
 import plugins.adufour.vars.gui.model.ValueSelectionModel;
 import plugins.adufour.vars.gui.model.VarEditorModel;
 import plugins.adufour.vars.gui.swing.ComboBox;
 import plugins.adufour.vars.lang.Var;
+import plugins.adufour.vars.util.ListenerList;
+import plugins.adufour.vars.util.VarDispatchMode;
 import plugins.adufour.vars.util.VarListener;
 
 /**
@@ -51,22 +55,40 @@ import plugins.adufour.vars.util.VarListener;
  */
 public abstract class EzVar<T> extends EzComponent implements VarListener<T>
 {
-    final Var<T>                              variable;
+    final Var<T>                                 variable;
     
-    private JLabel                            jLabelName;
+    private JLabel                               jLabelName;
     
-    private VarEditor<T>                      varEditor;
+    /**
+     * The editor of this variable, created on demand (see {@link #getVarEditor()})
+     */
+    private volatile VarEditor<T>                varEditor;
     
-    private final HashMap<EzComponent, T[]>   visibilityTriggers = new HashMap<EzComponent, T[]>();
+    private String                               toolTipText;
     
-    private final ArrayList<EzVarListener<T>> listeners          = new ArrayList<EzVarListener<T>>();
+    private final HashMap<EzComponent, T[]>      visibilityTriggers = new LinkedHashMap<EzComponent, T[]>();
     
-    private static final ImageIcon            helpIcon           = ResourceUtil.getColorIcon("help", 12);
+    /**
+     * Index of the {@link #visibilityTriggers}, from each trigger value to the components it shows
+     */
+    private final HashMap<T, Set<EzComponent>>   triggerIndex       = new HashMap<T, Set<EzComponent>>();
+    
+    /**
+     * Components shown as long as this variable is visible and enabled (i.e. without trigger value)
+     */
+    private final Set<EzComponent>               untriggeredTargets = new HashSet<EzComponent>();
     
-    private final JButton                     bHelp              = new JButton(helpIcon);
+    private final ListenerList<EzVarListener<T>> listeners          = new ListenerList<EzVarListener<T>>(EzVarListener.class);
+    
+    private static final ImageIcon               helpIcon           = ResourceUtil.getColorIcon("help", 12);
+    
+    private JButton                              bHelp;
     
     /**
-     * Constructs a new variable
+     * Constructs a new variable. Its graphical components (label and editor) are not created
+     * until they are needed, e.g. when the variable is first shown on the interface (see
+     * {@link #getVarEditor()}), so that variables in folded groups or unselected tabs cost nothing
+     * more than their underlying {@link Var} until then.
      * 
      * @param variable
      *            The variable to attach to this object
@@ -79,23 +101,64 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
         super(variable.getName());
         this.variable = variable;
         variable.setDefaultEditorModel(constraint);
+    }
+    
+    /**
+     * Creates the graphical components of this variable (unless already done)
+     */
+    private void createUIComponents()
+    {
+        if (varEditor != null) return;
         
         ThreadUtil.invokeNow(new Runnable()
         {
             public void run()
             {
+                if (varEditor != null) return;
+                
+                bHelp = new JButton(helpIcon);
                 bHelp.setPreferredSize(new Dimension(12, 12));
                 bHelp.setBorder(null);
                 bHelp.setContentAreaFilled(false);
                 bHelp.setBorderPainted(false);
                 bHelp.setOpaque(false);
+                bHelp.setToolTipText(toolTipText);
                 
                 jLabelName = new JLabel(variable.getName());
-                varEditor = variable.createVarEditor();
+                jLabelName.setEnabled(variable.isEnabled());
+                jLabelName.setToolTipText(toolTipText);
+                
+                VarEditor<T> editor = variable.createVarEditor();
+                if (toolTipText != null) editor.setComponentToolTipText(toolTipText);
+                varEditorCreated(editor);
+                
+                varEditor = editor;
             }
         });
     }
     
+    /**
+     * Called on the AWT event dispatch thread when the editor of this variable is created (see
+     * {@link #getVarEditor()}), before it is made available, in order to apply the settings made
+     * while it did not exist yet. This method must not call {@link #getVarEditor()}. The default
+     * implementation does nothing
+     * 
+     * @param editor
+     *            the newly created editor
+     */
+    protected void varEditorCreated(VarEditor<T> editor)
+    {
+    }
+    
+    /**
+     * @return <code>true</code> if the editor of this variable has already been created,
+     *         <code>false</code> otherwise (see {@link #getVarEditor()})
+     */
+    protected boolean hasVarEditor()
+    {
+        return varEditor != null;
+    }
+    
     /**
      * Creates a new variable with a JComboBox as default graphical component
      * 
@@ -124,6 +187,21 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
         listeners.add(listener);
     }
     
+    /**
+     * Sets how the listeners of this variable are notified. In asynchronous modes, listeners
+     * (including {@link EzVarListener}s) no longer run in the thread changing the value, so that a
+     * slow listener does not stall e.g. the {@link EzPlug#execute()} method. See
+     * {@link Var#setDispatchMode(VarDispatchMode)} for more details.
+     * 
+     * @param mode
+     *            the new dispatch mode
+     * @see Var#getDispatcher()
+     */
+    public void setDispatchMode(VarDispatchMode mode)
+    {
+        variable.setDispatchMode(mode);
+    }
+    
     /**
      * Sets a visibility trigger on the target EzComponent. The visibility state of the target
      * component is set to true whenever this variable is visible, and takes any of the trigger
@@ -139,7 +217,34 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
      */
     public void addVisibilityTriggerTo(EzComponent targetComponent, T... values)
     {
-        visibilityTriggers.put(targetComponent, values);
+        synchronized (visibilityTriggers)
+        {
+            visibilityTriggers.put(targetComponent, values);
+            
+            // recompile the index
+            triggerIndex.clear();
+            untriggeredTargets.clear();
+            
+            for (EzComponent target : visibilityTriggers.keySet())
+            {
+                T[] triggerValues = visibilityTriggers.get(target);
+                
+                if (triggerValues.length == 0) untriggeredTargets.add(target);
+                
+                for (T triggerValue : triggerValues)
+                {
+                    Set<EzComponent> targets = triggerIndex.get(triggerValue);
+                    
+                    if (targets == null)
+                    {
+                        targets = new HashSet<EzComponent>();
+                        triggerIndex.put(triggerValue, targets);
+                    }
+                    
+                    targets.add(target);
+                }
+            }
+        }
         
         updateVisibilityChain();
     }
@@ -147,6 +252,8 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
     @Override
     protected void addTo(Container container)
     {
+        createUIComponents();
+        
         GridBagConstraints gbc = new GridBagConstraints();
         
         gbc.insets = new Insets(2, 10, 2, 5);
@@ -201,9 +308,14 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
     
     protected void dispose()
     {
-        visibilityTriggers.clear();
+        synchronized (visibilityTriggers)
+        {
+            visibilityTriggers.clear();
+            triggerIndex.clear();
+            untriggeredTargets.clear();
+        }
         
-        varEditor.dispose();
+        if (varEditor != null) varEditor.dispose();
         
         // unregister the internal listener
         variable.removeListener(this);
@@ -223,14 +335,10 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
     
     protected final void fireVariableChanged(T value)
     {
-        for (EzVarListener<T> l : listeners)
+        for (EzVarListener<T> l : listeners.getListeners())
             l.variableChanged(this, value);
         
-        if (getUI() != null && varEditor != null)
-        {
-            updateVisibilityChain();
-            SwingUtilities.invokeLater(getUI().fullPackingTask);
-        }
+        if (getUI() != null) updateVisibilityChain();
     }
     
     /**
@@ -245,6 +353,12 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
      */
     public T[] getDefaultValues(T[] dest)
     {
+        // the combo box is created from (and kept in sync with) the editor model
+        if (!hasVarEditor() && variable.getDefaultEditorModel() instanceof ValueSelectionModel)
+        {
+            return ((ValueSelectionModel<T>) variable.getDefaultEditorModel()).getValidValues().toArray(dest);
+        }
+        
         if (getVarEditor() instanceof ComboBox)
         {
             JComboBox<T> combo = ((ComboBox<T>) getVarEditor()).getEditorComponent();
@@ -258,8 +372,12 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
         throw new UnsupportedOperationException("The input component is not a list of values");
     }
     
+    /**
+     * @return the editor of this variable (created on the first call if necessary)
+     */
     protected VarEditor<T> getVarEditor()
     {
+        createUIComponents();
         return varEditor;
     }
     
@@ -359,9 +477,17 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
      */
     public void setDefaultValues(T[] values, int defaultValueIndex, boolean allowUserInput)
     {
-        if (getVarEditor() instanceof ComboBox)
+        if (hasVarEditor())
         {
-            ((ComboBox<T>) getVarEditor()).setDefaultValues(values, defaultValueIndex, allowUserInput);
+            if (getVarEditor() instanceof ComboBox)
+            {
+                ((ComboBox<T>) getVarEditor()).setDefaultValues(values, defaultValueIndex, allowUserInput);
+            }
+        }
+        else if (variable.getDefaultEditorModel() instanceof ValueSelectionModel)
+        {
+            // the combo box will be created from the new model
+            variable.setDefaultEditorModel(new ValueSelectionModel<T>(values, defaultValueIndex, allowUserInput));
         }
     }
     
@@ -375,10 +501,15 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
     public void setEnabled(boolean enabled)
     {
         variable.setEnabled(enabled);
-        jLabelName.setEnabled(enabled);
-        getVarEditor().setEnabled(enabled);
-        updateVisibilityChain();
-        SwingUtilities.invokeLater(getUI().fullPackingTask);
+        
+        // the state of the editor is initialized upon creation
+        if (varEditor != null)
+        {
+            jLabelName.setEnabled(enabled);
+            varEditor.setEnabled(enabled);
+        }
+        
+        updateVisibilityChain(true);
     }
     
     /**
@@ -412,9 +543,14 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
     @Override
     public void setToolTipText(String text)
     {
+        toolTipText = text;
+        
+        // the tool-tip of the editor is initialized upon creation
+        if (varEditor == null) return;
+        
         jLabelName.setToolTipText(text);
         bHelp.setToolTipText(text);
-        getVarEditor().setComponentToolTipText(text);
+        varEditor.setComponentToolTipText(text);
     }
     
     /**
@@ -436,36 +572,82 @@ public abstract class EzVar<T> extends EzComponent implements VarListener<T>
         return variable.getName() + " = " + variable.toString();
     }
     
+    /**
+     * Updates the visibility state of the components targeted by the visibility triggers of this
+     * variable (see {@link #addVisibilityTriggerTo(EzComponent, Object...)}). Only the components
+     * whose visibility state actually changes are updated (which may in turn update their own
+     * targets), and the interface is re-packed once for all these changes (in incremental layout
+     * mode, only these components are shown or hidden, see
+     * {@link EzDialog#visibilityChanged(EzComponent)}). The interface is not re-packed if no
+     * visibility state has changed. Trigger values are compared to the current value of this
+     * variable using {@link Object#equals(Object)}.
+     */
     protected void updateVisibilityChain()
     {
-        Set<EzComponent> componentsToUpdate = visibilityTriggers.keySet();
-        
-        // first, hide everything in the chain
-        for (EzComponent component : componentsToUpdate)
-            component.setVisible(false);
-        
-        // if "this" is not visible, do anything else
-        if (!this.isVisible()) return;
+        updateVisibilityChain(false);
+    }
+    
+    /**
+     * Updates the visibility chain (see {@link #updateVisibilityChain()}) and requests a single
+     * re-pack of the interface for the whole chain
+     * 
+     * @param repack
+     *            <code>true</code> to re-pack the interface even if no visibility state has changed
+     */
+    private void updateVisibilityChain(boolean repack)
+    {
+        // merge the re-pack requests of the whole chain
+        EzDialog ui = getUI();
+        if (ui != null) ui.holdRepack();
         
-        // otherwise, one by one, show the components w.r.t. the triggers
-        for (EzComponent component : componentsToUpdate)
+        try
         {
-            T[] componentTriggerValues = visibilityTriggers.get(component);
-            
-            if (componentTriggerValues.length == 0 && isEnabled())
+            if (applyVisibilityTriggers() || repack)
             {
-                component.setVisible(true);
+                if (ui != null) ui.requestRepack();
             }
-            else for (T triggerValue : componentTriggerValues)
+        }
+        finally
+        {
+            if (ui != null) ui.releaseRepack();
+        }
+    }
+    
+    /**
+     * @return <code>true</code> if the visibility state of at least one target has changed
+     */
+    private boolean applyVisibilityTriggers()
+    {
+        List<EzComponent> toHide = new ArrayList<EzComponent>();
+        List<EzComponent> toShow = new ArrayList<EzComponent>();
+        
+        synchronized (visibilityTriggers)
+        {
+            if (visibilityTriggers.isEmpty()) return false;
+            
+            // if "this" is not visible, hide everything in the chain
+            boolean visible = isVisible();
+            boolean enabled = visible && isEnabled();
+            Set<EzComponent> triggered = visible ? triggerIndex.get(getValue()) : null;
+            
+            for (EzComponent component : visibilityTriggers.keySet())
             {
-                if (triggerValue == getValue())
-                {
-                    // this call will be recursive in case of a EzVar object
-                    component.setVisible(true);
-                    break;
-                }
+                boolean shown;
+                
+                if (untriggeredTargets.contains(component)) shown = enabled;
+                else shown = triggered != null && triggered.contains(component);
+                
+                if (shown != component.isVisible()) (shown ? toShow : toHide).add(component);
             }
         }
+        
+        // these calls will be recursive in case of EzVar objects
+        for (EzComponent component : toHide)
+            component.setVisible(false);
+        for (EzComponent component : toShow)
+            component.setVisible(true);
+        
+        return !toHide.isEmpty() || !toShow.isEmpty();
     }
     
     @Override
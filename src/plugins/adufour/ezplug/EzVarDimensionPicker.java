@@ -94,7 +94,8 @@ public class EzVarDimensionPicker extends EzVarInteger
         if (allowAll) setToolTipText("Choose -1 to select all values");
         s = sequence;
         this.dim = dim;
-        s.addListener(listener = new SequenceChangedListener());
+        // listen weakly, so that the sequence variable does not keep this picker alive
+        s.addWeakListener(listener = new SequenceChangedListener());
         listener.valueChanged(sequence, null, sequence.getValue());
         this.active = true;
     }
@@ -138,11 +139,13 @@ public class EzVarDimensionPicker extends EzVarInteger
         
         if (active)
         {
-            s.addListener(listener);
+            s.addWeakListener(listener);
         }
         else
         {
             s.removeListener(listener);
         }
+        
+        this.active = active;
     }
 }
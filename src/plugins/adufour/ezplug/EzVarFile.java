@@ -6,6 +6,7 @@ import java.util.regex.Pattern;
 
 import icy.util.StringUtil;
 import plugins.adufour.vars.gui.FileMode;
+import plugins.adufour.vars.gui.VarEditor;
 import plugins.adufour.vars.gui.model.FileTypeModel;
 import plugins.adufour.vars.gui.swing.FileChooser;
 import plugins.adufour.vars.lang.VarFile;
@@ -18,6 +19,11 @@ import plugins.adufour.vars.lang.VarFile;
  */
 public class EzVarFile extends EzVar<File>
 {
+    /**
+     * The text set via {@link #setButtonText(String)} (or <code>null</code> if not set)
+     */
+    private volatile String buttonText;
+    
     /**
      * Constructs a new input variable with given name and default file dialog path
      * 
@@ -92,6 +98,15 @@ public class EzVarFile extends EzVar<File>
      */
     public void setButtonText(String text)
     {
-        ((FileChooser) getVarEditor()).setButtonText(text);
+        buttonText = text;
+        
+        // if the button is not created yet, the text is applied upon creation
+        if (hasVarEditor()) ((FileChooser) getVarEditor()).setButtonText(text);
+    }
+    
+    @Override
+    protected void varEditorCreated(VarEditor<File> editor)
+    {
+        if (buttonText != null) ((FileChooser) editor).setButtonText(buttonText);
     }
 }
@@ -1,7 +1,7 @@
 package plugins.adufour.ezplug;
 
-import plugins.adufour.vars.gui.VarEditor;
 import plugins.adufour.vars.gui.model.RangeModel;
+import plugins.adufour.vars.gui.model.RangeModel.RangeEditorType;
 import plugins.adufour.vars.gui.model.VarEditorModel;
 import plugins.adufour.vars.gui.swing.Spinner;
 import plugins.adufour.vars.lang.Var;
@@ -54,10 +54,10 @@ public abstract class EzVarNumeric<N extends Number> extends EzVar<N>
      */
     public void setMinValue(Comparable<N> minValue) throws UnsupportedOperationException
     {
-        VarEditor<N> editor = getVarEditor();
-        if (editor instanceof Spinner) ((Spinner<N>) editor).setMinimum(minValue);
+        RangeModel<N> model = getSpinnerModel();
         
-        else throw new UnsupportedOperationException("Input component is not a spinner");
+        if (hasVarEditor()) ((Spinner<N>) getVarEditor()).setMinimum(minValue);
+        else model.setMinimum(minValue);
     }
     
     /**
@@ -84,12 +84,10 @@ public abstract class EzVarNumeric<N extends Number> extends EzVar<N>
      */
     public void setStep(N step) throws UnsupportedOperationException
     {
-        VarEditor<N> editor = getVarEditor();
-        if (editor instanceof Spinner)
-        {
-            ((Spinner<N>) editor).setStepSize(step);
-        }
-        else throw new UnsupportedOperationException("Input component is not a spinner");
+        RangeModel<N> model = getSpinnerModel();
+        
+        if (hasVarEditor()) ((Spinner<N>) getVarEditor()).setStepSize(step);
+        else model.setStepSize(step);
     }
     
     /**
@@ -117,12 +115,10 @@ public abstract class EzVarNumeric<N extends Number> extends EzVar<N>
      */
     public void setMaxValue(Comparable<N> maxValue)
     {
-        VarEditor<N> editor = getVarEditor();
-        if (editor instanceof Spinner)
-        {
-            ((Spinner<N>) editor).setMaximum(maxValue);
-        }
-        else throw new UnsupportedOperationException("Input component is not a spinner");
+        RangeModel<N> model = getSpinnerModel();
+        
+        if (hasVarEditor()) ((Spinner<N>) getVarEditor()).setMaximum(maxValue);
+        else model.setMaximum(maxValue);
     }
     
     /**
@@ -142,14 +138,46 @@ public abstract class EzVarNumeric<N extends Number> extends EzVar<N>
      */
     public void setValues(N value, Comparable<N> min, Comparable<N> max, N step)
     {
-        VarEditor<N> editor = getVarEditor();
-        if (editor instanceof Spinner)
+        RangeModel<N> model = getSpinnerModel();
+        
+        if (hasVarEditor())
+        {
+            Spinner<N> spinner = (Spinner<N>) getVarEditor();
+            spinner.setMinimum(min);
+            spinner.setMaximum(max);
+            spinner.setStepSize(step);
+        }
+        else
         {
-            ((Spinner<N>) editor).setMinimum(min);
-            ((Spinner<N>) editor).setMaximum(max);
-            ((Spinner<N>) editor).setStepSize(step);
-            setValue(value);
+            model.setMinimum(min);
+            model.setMaximum(max);
+            model.setStepSize(step);
         }
-        else throw new UnsupportedOperationException("Input component is not a spinner object");
+        
+        setValue(value);
+    }
+    
+    /**
+     * @return the range model of this variable, if its graphical component is (or will be, once
+     *         created) a spinner. The spinner is created from this model, hence the model can be
+     *         modified directly until then (see {@link #hasVarEditor()})
+     * @throws UnsupportedOperationException
+     *             If the graphical component of this variable is not a JSpinner object
+     */
+    @SuppressWarnings("unchecked")
+    private RangeModel<N> getSpinnerModel() throws UnsupportedOperationException
+    {
+        if (hasVarEditor())
+        {
+            if (getVarEditor() instanceof Spinner) return (RangeModel<N>) variable.getDefaultEditorModel();
+        }
+        else
+        {
+            VarEditorModel<N> model = variable.getDefaultEditorModel();
+            
+            if (model instanceof RangeModel && ((RangeModel<N>) model).getEditorType() == RangeEditorType.SPINNER) return (RangeModel<N>) model;
+        }
+        
+        throw new UnsupportedOperationException("Input component is not a spinner");
     }
 }
\ No newline at end of file
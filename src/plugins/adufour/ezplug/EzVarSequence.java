@@ -37,13 +37,14 @@ public class EzVarSequence extends EzVar<Sequence>
         getVariable().setValue(null);
         
         // set the active combo box item to "no sequence"
-        ((SequenceChooser) getVarEditor()).getEditorComponent().setSelectedIndex(0);
+        // (a combo box created later on will read the value from the variable)
+        if (hasVarEditor()) ((SequenceChooser) getVarEditor()).getEditorComponent().setSelectedIndex(0);
     }
     
     public void setValue(final Sequence value) throws UnsupportedOperationException
     {
         // 1) adjust the graphical interface (will also change the variable value)
-        ((SequenceChooser) getVarEditor()).getEditorComponent().setSelectedItem(value);
+        if (hasVarEditor()) ((SequenceChooser) getVarEditor()).getEditorComponent().setSelectedItem(value);
         // 2) if value is not in the list of opened sequences, the variable will be unchanged
         // => set it a second time here
         getVariable().setValue(value);
@@ -0,0 +1,285 @@
+package plugins.adufour.vars.gui;
+
+import icy.system.thread.ThreadUtil;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the refresh of {@link VarEditor}s on the event dispatch thread (EDT) at a bounded
+ * frame rate. When a variable changes, its editors are marked as "dirty" rather than refreshed
+ * immediately, and all dirty editors are refreshed together in the next frame. Each editor is
+ * refreshed at most once per frame, regardless of the number of changes in the meantime, and the
+ * EDT receives at most one refresh task per frame, which prevents variables changing at a high
+ * rate (e.g. live statistics) from flooding the EDT and freezing the interface.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class EditorRefreshScheduler
+{
+    /**
+     * The default maximum number of frames per second
+     */
+    public static final int DEFAULT_FRAME_RATE = 30;
+    
+    private static final EditorRefreshScheduler defaultScheduler = new EditorRefreshScheduler(DEFAULT_FRAME_RATE);
+    
+    private static ScheduledExecutorService timer;
+    
+    /**
+     * The editors to refresh in the next frame (also used as lock)
+     */
+    private final LinkedHashSet<VarEditor<?>> dirtyEditors = new LinkedHashSet<VarEditor<?>>();
+    
+    private boolean frameScheduled = false;
+    
+    private long lastFrameTime;
+    
+    private volatile long frameInterval;
+    
+    // statistics (guarded by dirtyEditors)
+    
+    private long requestCount, mergedCount, droppedCount, refreshCount, frameCount;
+    
+    private final Runnable frameTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            refreshDirtyEditors();
+        }
+    };
+    
+    private final Runnable postFrameTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            ThreadUtil.invokeLater(frameTask);
+        }
+    };
+    
+    /**
+     * Creates a new scheduler
+     * 
+     * @param maxFrameRate
+     *            the maximum number of frames per second
+     */
+    public EditorRefreshScheduler(int maxFrameRate)
+    {
+        setMaxFrameRate(maxFrameRate);
+        lastFrameTime = System.nanoTime() - frameInterval;
+    }
+    
+    /**
+     * @return the scheduler used by default by all editors
+     */
+    public static EditorRefreshScheduler getDefault()
+    {
+        return defaultScheduler;
+    }
+    
+    /**
+     * @param maxFrameRate
+     *            the maximum number of frames per second (i.e. the maximum number of times per
+     *            second an editor can be refreshed)
+     */
+    public void setMaxFrameRate(int maxFrameRate)
+    {
+        if (maxFrameRate <= 0) throw new IllegalArgumentException("Invalid frame rate: " + maxFrameRate);
+        
+        frameInterval = TimeUnit.SECONDS.toNanos(1) / maxFrameRate;
+    }
+    
+    /**
+     * @return the maximum number of frames per second
+     */
+    public int getMaxFrameRate()
+    {
+        return (int) (TimeUnit.SECONDS.toNanos(1) / frameInterval);
+    }
+    
+    /**
+     * Requests the specified editor to be refreshed in the next frame. This method can be called
+     * from any thread
+     * 
+     * @param editor
+     *            the editor to refresh
+     */
+    public void requestRefresh(VarEditor<?> editor)
+    {
+        long delay;
+        
+        synchronized (dirtyEditors)
+        {
+            requestCount++;
+            
+            if (!dirtyEditors.add(editor))
+            {
+                mergedCount++;
+                return;
+            }
+            
+            if (frameScheduled) return;
+            
+            frameScheduled = true;
+            delay = lastFrameTime + frameInterval - System.nanoTime();
+        }
+        
+        if (delay <= 0)
+        {
+            ThreadUtil.invokeLater(frameTask);
+        }
+        else
+        {
+            getTimer().schedule(postFrameTask, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Cancels the pending refresh of the specified editor (if any), e.g. because it is being
+     * disabled or disposed
+     * 
+     * @param editor
+     *            the editor which should not be refreshed
+     */
+    public void cancelRefresh(VarEditor<?> editor)
+    {
+        synchronized (dirtyEditors)
+        {
+            if (dirtyEditors.remove(editor)) droppedCount++;
+        }
+    }
+    
+    /**
+     * @return the number of editors currently waiting to be refreshed
+     */
+    public int getPendingCount()
+    {
+        synchronized (dirtyEditors)
+        {
+            return dirtyEditors.size();
+        }
+    }
+    
+    /**
+     * @return the total number of refresh requests received by this scheduler
+     */
+    public long getRequestCount()
+    {
+        synchronized (dirtyEditors)
+        {
+            return requestCount;
+        }
+    }
+    
+    /**
+     * @return the number of refresh requests merged into a pending refresh of the same editor
+     */
+    public long getMergedCount()
+    {
+        synchronized (dirtyEditors)
+        {
+            return mergedCount;
+        }
+    }
+    
+    /**
+     * @return the number of pending refreshes that were dropped because their editor was disabled
+     *         or disposed in the meantime
+     */
+    public long getDroppedCount()
+    {
+        synchronized (dirtyEditors)
+        {
+            return droppedCount;
+        }
+    }
+    
+    /**
+     * @return the number of editor refreshes actually performed
+     */
+    public long getRefreshCount()
+    {
+        synchronized (dirtyEditors)
+        {
+            return refreshCount;
+        }
+    }
+    
+    /**
+     * @return the number of frames (i.e. batches of refreshes sent to the EDT)
+     */
+    public long getFrameCount()
+    {
+        synchronized (dirtyEditors)
+        {
+            return frameCount;
+        }
+    }
+    
+    /**
+     * Resets all statistics to 0
+     */
+    public void resetStatistics()
+    {
+        synchronized (dirtyEditors)
+        {
+            requestCount = mergedCount = droppedCount = refreshCount = frameCount = 0;
+        }
+    }
+    
+    private void refreshDirtyEditors()
+    {
+        VarEditor<?>[] editors;
+        
+        synchronized (dirtyEditors)
+        {
+            editors = dirtyEditors.toArray(new VarEditor<?>[dirtyEditors.size()]);
+            dirtyEditors.clear();
+            frameScheduled = false;
+            lastFrameTime = System.nanoTime();
+            frameCount++;
+            refreshCount += editors.length;
+        }
+        
+        for (VarEditor<?> editor : editors)
+        {
+            try
+            {
+                editor.updateInterfaceValue();
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private static synchronized ScheduledExecutorService getTimer()
+    {
+        if (timer == null)
+        {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "Var editor refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            
+            executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            
+            timer = executor;
+        }
+        
+        return timer;
+    }
+}
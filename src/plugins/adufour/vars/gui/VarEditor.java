@@ -1,7 +1,5 @@
 package plugins.adufour.vars.gui;
 
-import icy.system.thread.ThreadUtil;
-
 import java.awt.Dimension;
 
 import javax.swing.JComponent;
@@ -237,6 +235,7 @@ public abstract class VarEditor<V> implements VarListener<V>
         // deactivate listeners first
         variable.removeListener(this);
         deactivateListeners();
+        EditorRefreshScheduler.getDefault().cancelRefresh(this);
         
         // enable or disable the component
         if (editorComponent != null) setEditorEnabled(enabled && variable.isEnabled());
@@ -280,25 +279,20 @@ public abstract class VarEditor<V> implements VarListener<V>
         setEnabled(false);
     }
     
+    /**
+     * Schedules the refresh of the graphical interface (see {@link EditorRefreshScheduler}).
+     * Successive changes occurring within the same frame trigger a single refresh
+     */
     public void valueChanged(Var<V> source, V oldValue, final V newValue)
     {
-        ThreadUtil.invokeLater(new Runnable()
-        {
-            public void run()
-            {
-                updateInterfaceValue();
-            }
-        });
+        EditorRefreshScheduler.getDefault().requestRefresh(this);
     }
     
+    /**
+     * Schedules the refresh of the graphical interface (see {@link EditorRefreshScheduler})
+     */
     public void referenceChanged(Var<V> source, Var<? extends V> oldReference, final Var<? extends V> newReference)
     {
-        ThreadUtil.invokeLater(new Runnable()
-        {
-            public void run()
-            {
-                updateInterfaceValue();
-            }
-        });
+        EditorRefreshScheduler.getDefault().requestRefresh(this);
     }
 }
@@ -1,24 +1,90 @@
 package plugins.adufour.vars.gui.swing;
 
 import icy.plugin.PluginDescriptor;
-import icy.plugin.PluginLoader;
+import icy.plugin.PluginLoader.PluginLoaderEvent;
+import icy.plugin.PluginLoader.PluginLoaderListener;
 import icy.plugin.abstract_.Plugin;
+import icy.system.thread.ThreadUtil;
 
 import java.awt.Component;
+import java.util.List;
 
+import javax.swing.AbstractListModel;
 import javax.swing.ComboBoxModel;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.ListCellRenderer;
-import javax.swing.event.ListDataListener;
 
 import plugins.adufour.vars.lang.Var;
 import plugins.adufour.vars.lang.VarPlugin;
 
 public class PluginChooser<P extends Plugin> extends SwingVarEditor<PluginDescriptor>
 {
+    /**
+     * Combo-box model listing the plug-ins of the variable's type. The list is read from the
+     * shared {@link PluginListCache}, and refreshed when the plug-ins are reloaded
+     */
+    private class PluginListModel extends AbstractListModel<PluginDescriptor> implements ComboBoxModel<PluginDescriptor>, PluginLoaderListener
+    {
+        private static final long serialVersionUID = 1L;
+
+        private List<PluginDescriptor> plugins = PluginListCache.getPlugins(((VarPlugin<?>) variable).pluginType);
+
+        @Override
+        public int getSize()
+        {
+            return plugins.size();
+        }
+
+        @Override
+        public PluginDescriptor getElementAt(int index)
+        {
+            return plugins.get(index);
+        }
+
+        @Override
+        public void setSelectedItem(Object anItem)
+        {
+            variable.setValue((PluginDescriptor) anItem);
+        }
+
+        @Override
+        public PluginDescriptor getSelectedItem()
+        {
+            return variable.getValue();
+        }
+
+        @Override
+        public void pluginLoaderChanged(PluginLoaderEvent e)
+        {
+            ThreadUtil.invokeLater(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    refresh();
+                }
+            });
+        }
+
+        /**
+         * Reloads the list from the cache, and notifies the combo-box if it has changed
+         */
+        void refresh()
+        {
+            List<PluginDescriptor> newPlugins = PluginListCache.getPlugins(((VarPlugin<?>) variable).pluginType);
+
+            if (newPlugins == plugins) return;
+
+            plugins = newPlugins;
+            fireContentsChanged(this, -1, -1);
+        }
+    }
+
+    private PluginListModel model;
+
     public PluginChooser(Var<PluginDescriptor> variable)
     {
         super(variable);
@@ -29,46 +95,9 @@ public class PluginChooser<P extends Plugin> extends SwingVarEditor<PluginDescri
     {
         JComboBox<PluginDescriptor> combo = new JComboBox<PluginDescriptor>();
 
-        combo.setModel(new ComboBoxModel<PluginDescriptor>()
-        {
-            @Override
-            public void removeListDataListener(ListDataListener l)
-            {
-            }
-
-            @Override
-            public int getSize()
-            {
-                @SuppressWarnings("unchecked")
-                Class<P> pluginType = ((VarPlugin<P>) variable).pluginType;
-                return PluginLoader.getPlugins(pluginType).size();
-            }
-
-            @Override
-            public PluginDescriptor getElementAt(int index)
-            {
-                @SuppressWarnings("unchecked")
-                Class<P> pluginType = ((VarPlugin<P>) variable).pluginType;
-                return PluginLoader.getPlugins(pluginType).get(index);
-            }
+        model = new PluginListModel();
 
-            @Override
-            public void addListDataListener(ListDataListener l)
-            {
-            }
-
-            @Override
-            public void setSelectedItem(Object anItem)
-            {
-                variable.setValue((PluginDescriptor) anItem);
-            }
-
-            @Override
-            public PluginDescriptor getSelectedItem()
-            {
-                return variable.getValue();
-            }
-        });
+        combo.setModel(model);
 
         if (combo.getModel().getSize() > 1) combo.setSelectedIndex(0);
 
@@ -90,15 +119,16 @@ public class PluginChooser<P extends Plugin> extends SwingVarEditor<PluginDescri
     @Override
     protected void activateListeners()
     {
-        // TODO Auto-generated method stub
+        PluginListCache.addListener(model);
 
+        // the plug-ins may have been reloaded in the meantime
+        model.refresh();
     }
 
     @Override
     protected void deactivateListeners()
     {
-        // TODO Auto-generated method stub
-
+        PluginListCache.removeListener(model);
     }
 
     @Override
@@ -0,0 +1,95 @@
+package plugins.adufour.vars.gui.swing;
+
+import icy.plugin.PluginDescriptor;
+import icy.plugin.PluginLoader;
+import icy.plugin.PluginLoader.PluginLoaderEvent;
+import icy.plugin.PluginLoader.PluginLoaderListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import plugins.adufour.vars.util.ListenerList;
+
+/**
+ * Shared cache of the plug-ins available for each plug-in type, used by {@link PluginChooser}. The
+ * list of each type is computed on first request, and kept until the plug-in loader reloads the
+ * plug-ins. Editors that display these lists can register to be notified when this happens.
+ * 
+ * @author Alexandre Dufour
+ */
+final class PluginListCache
+{
+    private static final Map<Class<?>, List<PluginDescriptor>> plugins = new HashMap<Class<?>, List<PluginDescriptor>>();
+    
+    private static final ListenerList<PluginLoaderListener> listeners = new ListenerList<PluginLoaderListener>(PluginLoaderListener.class);
+    
+    private static final PluginLoaderListener loaderListener = new PluginLoaderListener()
+    {
+        @Override
+        public void pluginLoaderChanged(PluginLoaderEvent e)
+        {
+            synchronized (plugins)
+            {
+                plugins.clear();
+            }
+            
+            for (PluginLoaderListener listener : listeners.getListeners())
+                listener.pluginLoaderChanged(e);
+        }
+    };
+    
+    private static boolean listening = false;
+    
+    private PluginListCache()
+    {
+    }
+    
+    /**
+     * @param pluginType
+     *            the type of plug-ins to list
+     * @return the (unmodifiable) list of plug-ins of the specified type
+     */
+    static List<PluginDescriptor> getPlugins(Class<?> pluginType)
+    {
+        synchronized (plugins)
+        {
+            if (!listening)
+            {
+                PluginLoader.addListener(loaderListener);
+                listening = true;
+            }
+            
+            List<PluginDescriptor> list = plugins.get(pluginType);
+            
+            if (list == null)
+            {
+                list = Collections.unmodifiableList(new ArrayList<PluginDescriptor>(PluginLoader.getPlugins(pluginType)));
+                plugins.put(pluginType, list);
+            }
+            
+            return list;
+        }
+    }
+    
+    /**
+     * Registers a listener to be notified (after the cache has been cleared) whenever the plug-in
+     * loader reloads the plug-ins. Listeners may be notified from any thread
+     * 
+     * @param listener
+     */
+    static void addListener(PluginLoaderListener listener)
+    {
+        listeners.add(listener);
+    }
+    
+    /**
+     * @param listener
+     */
+    static void removeListener(PluginLoaderListener listener)
+    {
+        listeners.remove(listener);
+    }
+}
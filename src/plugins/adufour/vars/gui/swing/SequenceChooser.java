@@ -17,13 +17,13 @@ import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
-import javax.swing.JLabel;
 import javax.swing.JList;
-import javax.swing.ListCellRenderer;
 import javax.swing.event.ListDataListener;
 
 import plugins.adufour.vars.lang.Var;
 import plugins.adufour.vars.lang.VarSequence;
+import plugins.adufour.vars.util.OpenSequences;
+import plugins.adufour.vars.util.WeakGlobalSequenceListener;
 
 public class SequenceChooser extends SwingVarEditor<Sequence>
 {
@@ -32,6 +32,12 @@ public class SequenceChooser extends SwingVarEditor<Sequence>
     
     private SequenceListener          listener;
     
+    /**
+     * Relays global sequence events to {@link #listener} without letting the main interface keep
+     * this chooser alive
+     */
+    private WeakGlobalSequenceListener weakListener;
+    
     private JComboSequenceBoxListener jComboSequenceBoxListener;
     
     public SequenceChooser(Var<Sequence> variable)
@@ -87,7 +93,7 @@ public class SequenceChooser extends SwingVarEditor<Sequence>
         {
             // index 0: no sequence
             // index 1: active sequence
-            return 2 + Icy.getMainInterface().getSequences().size();
+            return 2 + OpenSequences.getSequences().length;
         }
         
         @Override
@@ -97,7 +103,7 @@ public class SequenceChooser extends SwingVarEditor<Sequence>
             
             if (index == 1) return VarSequence.ACTIVE_SEQUENCE;
             
-            return Icy.getMainInterface().getSequences().get(index - 2);
+            return OpenSequences.getSequences()[index - 2];
         }
         
         @Override
@@ -107,6 +113,27 @@ public class SequenceChooser extends SwingVarEditor<Sequence>
         }
     }
     
+    /**
+     * Cell renderer reusing the same label for all cells
+     */
+    private static final class SequenceCellRenderer extends DefaultListCellRenderer
+    {
+        private static final long serialVersionUID = 1L;
+        
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus)
+        {
+            String text;
+            
+            if (value == VarSequence.ACTIVE_SEQUENCE) text = VarSequence.ACTIVE_SEQUENCE;
+            else if (value == null || value == VarSequence.NO_SEQUENCE) text = VarSequence.NO_SEQUENCE;
+            else if (value instanceof Sequence) text = StringUtil.limit(FileUtil.getFileName(((Sequence) value).getName()), 24);
+            else throw new IllegalArgumentException(value.toString());
+            
+            return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+        }
+    }
+    
     /**
      * Creates a graphical component able to receive user input to change the variable value.<br>
      * Note that listeners are <b>NOT</b> registered here. This operation should be done when (and
@@ -120,24 +147,7 @@ public class SequenceChooser extends SwingVarEditor<Sequence>
         
         final JComboBox<Object> jComboSequences = new JComboBox<Object>(new SequenceChooserModel());
         
-        jComboSequences.setRenderer(new ListCellRenderer<Object>()
-        {
-            public Component getListCellRendererComponent(JList<? extends Object> list, Object value, int index, boolean isSelected, boolean cellHasFocus)
-            {
-                if (value == VarSequence.ACTIVE_SEQUENCE) return new JLabel(VarSequence.ACTIVE_SEQUENCE);
-                
-                if (value == null || value == VarSequence.NO_SEQUENCE) return new JLabel(VarSequence.NO_SEQUENCE);
-                
-                if (value instanceof Sequence)
-                {
-                    String s = FileUtil.getFileName(((Sequence) value).getName());
-                    JLabel label = new JLabel(StringUtil.limit(s, 24));
-                    return label;
-                }
-                
-                throw new IllegalArgumentException(value.toString());
-            }
-        });
+        jComboSequences.setRenderer(new SequenceCellRenderer());
         
         listener = new SequenceListener()
         {
@@ -187,6 +197,8 @@ public class SequenceChooser extends SwingVarEditor<Sequence>
             }
         };
         
+        weakListener = new WeakGlobalSequenceListener(listener);
+        
         if (variable.getReference() == null) variable.setValue(Icy.getMainInterface().getActiveSequence());
         
         return jComboSequences;
@@ -240,16 +252,14 @@ public class SequenceChooser extends SwingVarEditor<Sequence>
     @Override
     protected void activateListeners()
     {
-        Icy.getMainInterface().addGlobalSequenceListener(listener);
-        Icy.getMainInterface().addActiveSequenceListener(listener);
+        weakListener.register();
         getEditorComponent().addActionListener(jComboSequenceBoxListener);
     }
     
     @Override
     protected void deactivateListeners()
     {
-        Icy.getMainInterface().removeGlobalSequenceListener(listener);
-        Icy.getMainInterface().removeActiveSequenceListener(listener);
+        weakListener.unregister();
         getEditorComponent().removeActionListener(jComboSequenceBoxListener);
     }
 }
@@ -9,10 +9,10 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import icy.gui.main.GlobalSequenceListener;
-import icy.main.Icy;
 import icy.sequence.Sequence;
 import icy.system.thread.ThreadUtil;
 import plugins.adufour.vars.lang.Var;
+import plugins.adufour.vars.util.OpenSequences;
 
 /**
  * Graphical component representing the list of opened sequence, allowing multiple selected items
@@ -37,13 +37,13 @@ public class SequenceList extends SwingVarEditor<Sequence[]>
         @Override
         public int getSize()
         {
-            return Icy.getMainInterface().getSequences().size();
+            return OpenSequences.getSequences().length;
         }
         
         @Override
         public Sequence getElementAt(int index)
         {
-            return Icy.getMainInterface().getSequences().get(index);
+            return OpenSequences.getSequences()[index];
         }
     }
     
@@ -116,14 +116,14 @@ public class SequenceList extends SwingVarEditor<Sequence[]>
     @Override
     protected void activateListeners()
     {
-        Icy.getMainInterface().addGlobalSequenceListener(mainListener);
+        OpenSequences.addListener(mainListener);
         getEditorComponent().addListSelectionListener(listener);
     }
     
     @Override
     protected void deactivateListeners()
     {
-        Icy.getMainInterface().removeGlobalSequenceListener(mainListener);
+        OpenSequences.removeListener(mainListener);
         getEditorComponent().removeListSelectionListener(listener);
     }
     
@@ -142,7 +142,7 @@ public class SequenceList extends SwingVarEditor<Sequence[]>
                 int[] indices = new int[seqs.length];
                 
                 for (int i = 0; i < seqs.length; i++)
-                    indices[i] = Icy.getMainInterface().getSequences().indexOf(seqs[i]);
+                    indices[i] = OpenSequences.indexOf(seqs[i]);
                 
                 getEditorComponent().setSelectedIndices(indices);
             }
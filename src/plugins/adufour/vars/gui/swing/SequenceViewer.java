@@ -18,6 +18,7 @@ import javax.swing.JPanel;
 
 import plugins.adufour.vars.lang.Var;
 import plugins.adufour.vars.lang.VarMutable;
+import plugins.adufour.vars.util.WeakSequenceListener;
 
 public class SequenceViewer extends SwingVarEditor<Sequence> implements SequenceListener
 {
@@ -74,6 +75,21 @@ public class SequenceViewer extends SwingVarEditor<Sequence> implements Sequence
     
     private boolean mouseOver = false;
     
+    /**
+     * Relays sequence events to this viewer without letting the sequence keep it alive
+     */
+    private final WeakSequenceListener sequenceListener = new WeakSequenceListener(this);
+    
+    /**
+     * The sequence this viewer is currently listening to (if any). Guarded by this viewer
+     */
+    private Sequence listenedSequence;
+    
+    /**
+     * Indicates whether the listeners of this viewer are active. Guarded by this viewer
+     */
+    private boolean listening = false;
+    
     private final MouseAdapter mouseAdapter = new MouseAdapter()
                                             {
                                                 @Override
@@ -103,12 +119,70 @@ public class SequenceViewer extends SwingVarEditor<Sequence> implements Sequence
     protected void activateListeners()
     {
         getEditorComponent().addMouseListener(mouseAdapter);
+        updateSequenceListener(true);
     }
     
     @Override
     protected void deactivateListeners()
     {
         getEditorComponent().removeMouseListener(mouseAdapter);
+        updateSequenceListener(false);
+    }
+    
+    /**
+     * Starts or stops listening to the sequence stored in the variable
+     * 
+     * @param active
+     *            <code>true</code> if the viewer is listening, <code>false</code> to stop listening
+     *            to any sequence
+     */
+    private void updateSequenceListener(boolean active)
+    {
+        synchronized (this)
+        {
+            listening = active;
+        }
+        
+        updateSequenceListener();
+    }
+    
+    /**
+     * Moves the sequence listener of this viewer to the current value of the variable. Since
+     * variable events may be delivered concurrently (and in any order), the value is read here
+     * rather than taken from the events, so that concurrent calls leave the listener on the
+     * current sequence. The listened sequence is swapped while holding the lock of this viewer,
+     * but the listener is added and removed outside of it (to avoid taking the lock of a sequence
+     * while holding that of the viewer).
+     */
+    private void updateSequenceListener()
+    {
+        Sequence oldSequence, newSequence;
+        
+        synchronized (this)
+        {
+            oldSequence = listenedSequence;
+            newSequence = listening ? variable.getValue() : null;
+            
+            if (oldSequence == newSequence) return;
+            
+            listenedSequence = newSequence;
+        }
+        
+        if (oldSequence != null) oldSequence.removeListener(sequenceListener);
+        
+        if (newSequence == null) return;
+        
+        newSequence.addListener(sequenceListener);
+        
+        boolean replaced;
+        
+        synchronized (this)
+        {
+            replaced = listenedSequence != newSequence;
+        }
+        
+        // a concurrent call swapped the sequence again, possibly before the listener was added
+        if (replaced) newSequence.removeListener(sequenceListener);
     }
     
     @Override
@@ -139,15 +213,14 @@ public class SequenceViewer extends SwingVarEditor<Sequence> implements Sequence
     @Override
     public void valueChanged(Var<Sequence> source, Sequence oldValue, Sequence newValue)
     {
-        if (oldValue != null) oldValue.removeListener(this);
-        if (newValue != null) newValue.addListener(this);
+        updateSequenceListener();
         super.valueChanged(source, oldValue, newValue);
     }
     
     @Override
     public void referenceChanged(Var<Sequence> source, Var<? extends Sequence> oldReference, Var<? extends Sequence> newReference)
     {
-        if (oldReference != null && oldReference.getValue() != null) oldReference.getValue().removeListener(this);
+        updateSequenceListener();
         super.referenceChanged(source, oldReference, newReference);
     }
     
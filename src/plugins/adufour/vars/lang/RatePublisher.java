@@ -0,0 +1,111 @@
+package plugins.adufour.vars.lang;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Helper class publishing the value of an accumulating variable at a bounded rate: the first change
+ * following a publication schedules the next one after the publication interval, and all changes
+ * occurring in the meantime are published together.
+ * 
+ * @author Alexandre Dufour
+ * @see VarLongAdder
+ * @see VarDoubleAccumulator
+ */
+final class RatePublisher
+{
+    private static ScheduledExecutorService scheduler;
+    
+    private final AtomicBoolean pending = new AtomicBoolean();
+    
+    private volatile long interval;
+    
+    private final Runnable publication;
+    
+    private final Runnable publicationTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            // reset first, so that changes made during the publication are not missed
+            pending.set(false);
+            
+            try
+            {
+                publication.run();
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    };
+    
+    /**
+     * @param publication
+     *            the task publishing the current value
+     * @param interval
+     *            the minimum time (in milliseconds) between two publications
+     */
+    RatePublisher(Runnable publication, long interval)
+    {
+        this.publication = publication;
+        setInterval(interval);
+    }
+    
+    private static synchronized ScheduledExecutorService getScheduler()
+    {
+        if (scheduler == null)
+        {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "Var publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            
+            executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            
+            scheduler = executor;
+        }
+        
+        return scheduler;
+    }
+    
+    long getInterval()
+    {
+        return interval;
+    }
+    
+    void setInterval(long interval)
+    {
+        if (interval < 0) throw new IllegalArgumentException("The publication interval cannot be negative");
+        this.interval = interval;
+    }
+    
+    /**
+     * Signals a change of the value, which will be published at the latest after the publication
+     * interval (or immediately if the interval is 0)
+     */
+    void changed()
+    {
+        if (interval == 0)
+        {
+            publication.run();
+            return;
+        }
+        
+        // cheap read first, to avoid contention on the flag under heavy load
+        if (pending.get() || !pending.compareAndSet(false, true)) return;
+        
+        getScheduler().schedule(publicationTask, interval, TimeUnit.MILLISECONDS);
+    }
+}
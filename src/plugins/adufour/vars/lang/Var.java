@@ -4,12 +4,20 @@ import icy.file.xml.XMLPersistent;
 import icy.system.IcyHandledException;
 import icy.util.XMLUtil;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+import java.util.function.UnaryOperator;
 import javax.swing.JLabel;
 
 import org.w3c.dom.Element;
@@ -20,9 +28,13 @@ import plugins.adufour.vars.gui.model.ValueSelectionModel;
 import plugins.adufour.vars.gui.model.VarEditorModel;
 import plugins.adufour.vars.gui.swing.ComboBox;
 import plugins.adufour.vars.gui.swing.Label;
+import plugins.adufour.vars.util.ArrayFormatter;
+import plugins.adufour.vars.util.ListenerList;
+import plugins.adufour.vars.util.VarDispatchMode;
 import plugins.adufour.vars.util.VarException;
 import plugins.adufour.vars.util.VarListener;
 import plugins.adufour.vars.util.VarReferencingPolicy;
+import plugins.adufour.vars.util.WeakVarListener;
 
 /**
  * <p>
@@ -95,14 +107,66 @@ public class Var<T> implements XMLPersistent, VarListener<T>
     
     private final T defaultValue;
     
-    private T value;
+    private volatile T value;
+    
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Var, Object> valueUpdater = AtomicReferenceFieldUpdater.newUpdater(Var.class, Object.class, "value");
     
     private VarReferencingPolicy referencingPolicy = VarReferencingPolicy.BOTH;
     
+    /**
+     * Stamp of the last effective change of this variable (see {@link #getVersion()})
+     */
+    private volatile long version = 0;
+    
+    /**
+     * Global clock providing increasing version stamps to all variables
+     */
+    private static final AtomicLong versionClock = new AtomicLong();
+    
+    /**
+     * Arrays longer than this are compared by identity only (see
+     * {@link #valueEquals(Object, Object)}), as comparing their contents on every change would
+     * cost more than the (spurious) event it may spare
+     */
+    static final int DEEP_EQUALS_MAX_LENGTH = 4096;
+    
     /**
      * The variable referenced by this variable
      */
-    private Var<? extends T> reference;
+    private volatile Var<? extends T> reference;
+    
+    /**
+     * Cached end of the reference chain (see {@link #getSource()}), valid as long as its stamp
+     * matches the current {@link #linkStamp}
+     */
+    private volatile ResolvedSource<T> resolvedSource;
+    
+    /**
+     * Counter incremented whenever a reference is changed along the reference chain of this
+     * variable, thereby invalidating its cached source
+     */
+    private final AtomicLong linkStamp = new AtomicLong();
+    
+    /**
+     * Indicates, for each variable class, whether it overrides {@link #getValueAsString()} (in
+     * which case {@link #writeValue(Appendable)} must use that method instead of streaming)
+     */
+    private static final ClassValue<Boolean> hasCustomFormat = new ClassValue<Boolean>()
+    {
+        @Override
+        protected Boolean computeValue(Class<?> type)
+        {
+            try
+            {
+                return type.getMethod("getValueAsString").getDeclaringClass() != Var.class;
+            }
+            catch (NoSuchMethodException e)
+            {
+                return Boolean.TRUE;
+            }
+        }
+    };
     
     /**
      * The list of variables referencing this variable
@@ -111,7 +175,37 @@ public class Var<T> implements XMLPersistent, VarListener<T>
     
     protected VarEditorModel<T> defaultEditorModel;
     
-    protected final List<VarListener<T>> listeners = new ArrayList<VarListener<T>>();
+    final ListenerList<VarListener<T>> listenerList = new ListenerList<VarListener<T>>(VarListener.class);
+    
+    /**
+     * Live view of the listeners of this variable. Modifications of this list are applied to the
+     * listeners, but notification uses a lock-free snapshot (i.e. synchronizing on this list is no
+     * longer necessary). Each listener is registered at most once (see
+     * {@link ListenerList#asList()}).
+     */
+    protected final List<VarListener<T>> listeners = listenerList.asList();
+    
+    /**
+     * Asynchronous notifier of the listeners (or <code>null</code> if listeners are notified
+     * synchronously)
+     * 
+     * @see #setDispatchMode(VarDispatchMode, Executor)
+     */
+    private volatile VarDispatcher<T> dispatcher;
+    
+    /**
+     * Pending change events of the batch update currently running in each thread (if any)
+     * 
+     * @see #beginBatch()
+     */
+    private static final ThreadLocal<Batch> batches = new ThreadLocal<Batch>()
+    {
+        @Override
+        protected Batch initialValue()
+        {
+            return new Batch();
+        }
+    };
     
     /**
      * Creates a new {@link Var}iable with given name and non-null default value.
@@ -229,10 +323,28 @@ public class Var<T> implements XMLPersistent, VarListener<T>
      */
     public void addListener(VarListener<T> listener)
     {
-        synchronized (listeners)
-        {
-            if (!listeners.contains(listener)) listeners.add(listener);
-        }
+        listenerList.add(listener);
+    }
+    
+    /**
+     * Adds the specified listener to the list of registered listeners, without preventing it from
+     * being garbage collected. This is typically useful for graphical components listening to
+     * long-lived variables, which would otherwise remain in memory until explicitly removed. Once
+     * the listener has been collected, it is unregistered automatically the next time this
+     * variable fires an event. The caller must therefore keep a strong reference to the listener
+     * for as long as it should be notified. Weak listeners are removed via
+     * {@link #removeListener(VarListener)} as regular listeners.
+     * 
+     * @param listener
+     *            the listener to register
+     * @see WeakVarListener
+     */
+    public void addWeakListener(VarListener<T> listener)
+    {
+        for (VarListener<T> l : listenerList.getListeners())
+            if (l == listener || (l instanceof WeakVarListener && ((WeakVarListener<T>) l).getListener() == listener)) return;
+        
+        listenerList.add(new WeakVarListener<T>(listener));
     }
     
     /**
@@ -243,7 +355,10 @@ public class Var<T> implements XMLPersistent, VarListener<T>
      */
     private void addReferrer(Var<? super T> referrer)
     {
-        referrers.add(referrer);
+        synchronized (referrers)
+        {
+            referrers.add(referrer);
+        }
     }
     
     /**
@@ -304,28 +419,200 @@ public class Var<T> implements XMLPersistent, VarListener<T>
     
     protected void fireVariableChanged(Var<? extends T> oldRef, Var<? extends T> newRef)
     {
-        final ArrayList<VarListener<T>> listenersCopy;
+        VarDispatcher<T> asyncDispatcher = dispatcher;
         
-        synchronized (listeners)
+        if (asyncDispatcher != null)
         {
-            listenersCopy = new ArrayList<VarListener<T>>(listeners);
+            asyncDispatcher.postReferenceChanged(oldRef, newRef);
+            return;
         }
         
-        for (VarListener<T> l : listenersCopy)
+        for (VarListener<T> l : listenerList.getListeners())
             l.referenceChanged(this, oldRef, newRef);
     }
     
     protected void fireVariableChanged(T oldValue, T newValue)
     {
-        final ArrayList<VarListener<T>> listenersCopy;
+        Batch batch = batches.get();
         
-        synchronized (listeners)
+        if (batch.depth > 0)
         {
-            listenersCopy = new ArrayList<VarListener<T>>(listeners);
+            batch.defer(this, oldValue, newValue);
+            return;
         }
         
-        for (VarListener<T> l : listenersCopy)
-            l.valueChanged(this, oldValue, newValue);
+        fireTypedListeners(oldValue, newValue);
+        
+        VarDispatcher<T> asyncDispatcher = dispatcher;
+        
+        if (asyncDispatcher != null)
+        {
+            asyncDispatcher.postValueChanged(oldValue, newValue);
+        }
+        else
+        {
+            for (VarListener<T> l : listenerList.getListeners())
+                l.valueChanged(this, oldValue, newValue);
+        }
+    }
+    
+    /**
+     * Notifies the listeners specific to this type of variable (e.g. listeners receiving primitive
+     * values), before the regular {@link VarListener}s. This method does nothing by default, and is
+     * not called for batched changes until the batch is committed. The values are not typed, so
+     * that overriding methods can accept any compatible value (e.g. an {@link Integer} for a
+     * {@link VarDouble} pointing to a {@link VarInteger}) instead of failing on a cast.
+     * 
+     * @param oldValue
+     *            the old variable value
+     * @param newValue
+     *            the new variable value
+     */
+    protected void fireTypedListeners(Object oldValue, Object newValue)
+    {
+    }
+    
+    /**
+     * Converts a value of the variable this variable points to into the type of this variable.
+     * This method is used to notify the listeners of this variable with values of its own type
+     * when the referenced variable changes, and should perform the same conversion as
+     * {@link #getValue(boolean)} for variables that can point to variables of a different type.
+     * By default, the value is returned as is.
+     * 
+     * @param value
+     *            a value of the source variable
+     * @return the corresponding value for this variable
+     */
+    @SuppressWarnings("unchecked")
+    protected T convertReferencedValue(Object value)
+    {
+        return (T) value;
+    }
+    
+    /**
+     * Sets how the listeners of this variable are notified, using the
+     * {@link VarDispatcher#getDefaultExecutor() default executor} for asynchronous modes.
+     * 
+     * @param mode
+     *            the new dispatch mode
+     * @see #setDispatchMode(VarDispatchMode, Executor)
+     */
+    public void setDispatchMode(VarDispatchMode mode)
+    {
+        setDispatchMode(mode, null);
+    }
+    
+    /**
+     * Sets how the listeners of this variable are notified. By default, listeners are notified
+     * synchronously by the thread changing the variable, which therefore waits for all of them. In
+     * the {@link VarDispatchMode#ORDERED ORDERED} and {@link VarDispatchMode#CONFLATED CONFLATED}
+     * modes, events are queued and delivered in order on the specified executor instead.<br/>
+     * Notes:
+     * <ul>
+     * <li>Only {@link VarListener}s are concerned: primitive listeners (e.g.
+     * {@link plugins.adufour.vars.util.DoubleVarListener DoubleVarListener}) are still notified
+     * synchronously. Referrers are regular listeners, and are therefore notified by the
+     * dispatcher as well</li>
+     * <li>Events queued before a mode change are still delivered, but may be interleaved with
+     * events fired after the change</li>
+     * </ul>
+     * 
+     * @param mode
+     *            the new dispatch mode
+     * @param executor
+     *            the executor delivering the events in asynchronous modes (or <code>null</code> to
+     *            use the {@link VarDispatcher#getDefaultExecutor() default executor})
+     * @see #getDispatcher()
+     */
+    public void setDispatchMode(VarDispatchMode mode, Executor executor)
+    {
+        if (mode == VarDispatchMode.SYNCHRONOUS)
+        {
+            dispatcher = null;
+        }
+        else
+        {
+            dispatcher = new VarDispatcher<T>(this, mode, executor == null ? VarDispatcher.getDefaultExecutor() : executor);
+        }
+    }
+    
+    /**
+     * @return the current dispatch mode of this variable's listeners
+     * @see #setDispatchMode(VarDispatchMode, Executor)
+     */
+    public VarDispatchMode getDispatchMode()
+    {
+        VarDispatcher<T> asyncDispatcher = dispatcher;
+        return asyncDispatcher == null ? VarDispatchMode.SYNCHRONOUS : asyncDispatcher.getMode();
+    }
+    
+    /**
+     * @return the object notifying listeners asynchronously (e.g. to monitor its queue depth and
+     *         latency), or <code>null</code> if listeners are notified synchronously
+     * @see #setDispatchMode(VarDispatchMode, Executor)
+     */
+    public VarDispatcher<T> getDispatcher()
+    {
+        return dispatcher;
+    }
+    
+    /**
+     * Starts a batch update in the current thread. Until the matching call to
+     * {@link #commitBatch()}, value changes made by this thread on any variable are applied
+     * immediately (i.e. {@link #getValue()} returns the new value), but their listeners are not
+     * notified. Upon commit, each modified variable fires a single value-changed event carrying its
+     * value before the batch and its final value (no event is fired if both are equal).<br/>
+     * Batches may be nested, in which case events are only fired when the outer-most batch is
+     * committed. Reference changes are never deferred. A typical usage is:
+     * 
+     * <pre>
+     * Var.beginBatch();
+     * try
+     * {
+     *     var1.setValue(...);
+     *     var2.setValue(...);
+     * }
+     * finally
+     * {
+     *     Var.commitBatch();
+     * }
+     * </pre>
+     * 
+     * @see #commitBatch()
+     */
+    public static void beginBatch()
+    {
+        batches.get().depth++;
+    }
+    
+    /**
+     * Ends the batch update started by the last call to {@link #beginBatch()} in the current
+     * thread. If this was the outer-most batch, all deferred value-changed events are fired (in
+     * the order in which the variables were first modified). If a listener throws an exception,
+     * the remaining variables are still notified, after which the first exception is rethrown
+     * (with the following ones attached as suppressed exceptions).
+     * 
+     * @throws IllegalStateException
+     *             if no batch update is running in the current thread
+     */
+    public static void commitBatch() throws IllegalStateException
+    {
+        Batch batch = batches.get();
+        
+        if (batch.depth == 0) throw new IllegalStateException("No batch update to commit");
+        
+        if (--batch.depth > 0) return;
+        
+        batch.flush();
+    }
+    
+    /**
+     * @return <code>true</code> if a batch update is currently running in the current thread
+     * @see #beginBatch()
+     */
+    public static boolean isBatchUpdating()
+    {
+        return batches.get().depth > 0;
     }
     
     /**
@@ -356,6 +643,137 @@ public class Var<T> implements XMLPersistent, VarListener<T>
         return reference;
     }
     
+    /**
+     * @return the variable at the end of the reference chain, i.e. the variable that actually
+     *         stores the value returned by {@link #getValue()}, or this variable if it does not
+     *         reference any other variable. The result is cached until a reference is changed
+     *         along the chain. Note that the value of the source may differ from that of this
+     *         variable if the chain goes through variables of another type (e.g. a
+     *         {@link VarDouble} pointing to a {@link VarInteger} pointing to a {@link VarDouble})
+     * @see #getReference()
+     * @see #getReferenceDepth()
+     */
+    public Var<? extends T> getSource()
+    {
+        if (reference == null) return this;
+        
+        return resolveSource().source;
+    }
+    
+    /**
+     * @return the variable to read the value of this variable from, i.e. the
+     *         {@link #getSource() source} if all the variables between this variable and its
+     *         source are of the same class as this variable (in which case reading a value takes
+     *         constant time regardless of the chain length), the referenced variable otherwise (so
+     *         that the conversion performed by each intermediate variable is preserved), or this
+     *         variable if it does not reference any other variable
+     */
+    Var<? extends T> getReadSource()
+    {
+        if (reference == null) return this;
+        
+        return resolveSource().readSource;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private ResolvedSource<T> resolveSource()
+    {
+        // read the stamp first: a concurrent link change will invalidate the entry stored below
+        long stamp = linkStamp.get();
+        
+        ResolvedSource<T> resolved = resolvedSource;
+        
+        if (resolved != null && resolved.stamp == stamp) return resolved;
+        
+        Var<?> source = this;
+        boolean uniform = true;
+        
+        while (source.reference != null)
+        {
+            if (source != this && source.getClass() != getClass()) uniform = false;
+            source = source.reference;
+        }
+        
+        Var<?> readSource = uniform || reference == null ? source : reference;
+        
+        resolved = new ResolvedSource<T>((Var<? extends T>) source, (Var<? extends T>) readSource, stamp);
+        resolvedSource = resolved;
+        
+        return resolved;
+    }
+    
+    /**
+     * Invalidates the cached source of this variable and of all the variables pointing to it
+     * (directly or not), since their reference chain goes through this variable
+     */
+    private void invalidateSources()
+    {
+        List<Var<?>> pending = new ArrayList<Var<?>>();
+        pending.add(this);
+        
+        while (!pending.isEmpty())
+        {
+            Var<?> var = pending.remove(pending.size() - 1);
+            
+            var.linkStamp.incrementAndGet();
+            
+            synchronized (var.referrers)
+            {
+                pending.addAll(var.referrers);
+            }
+        }
+    }
+    
+    /**
+     * @return the number of references to follow from this variable to reach its
+     *         {@link #getSource() source} (0 if this variable does not reference another one)
+     */
+    public int getReferenceDepth()
+    {
+        int depth = 0;
+        
+        for (Var<?> var = reference; var != null; var = var.reference)
+            depth++;
+        
+        return depth;
+    }
+    
+    /**
+     * @param recursive
+     *            <code>false</code> to count only the variables directly pointing to this variable,
+     *            or <code>true</code> to also count the variables pointing to them (and so on)
+     * @return the number of variables reading their value from this variable (i.e. its "fan-out")
+     */
+    public int getReferrerCount(boolean recursive)
+    {
+        List<Var<?>> pending = new ArrayList<Var<?>>();
+        pending.add(this);
+        
+        int count = 0;
+        
+        while (!pending.isEmpty())
+        {
+            Var<?> var = pending.remove(pending.size() - 1);
+            
+            synchronized (var.referrers)
+            {
+                count += var.referrers.size();
+                if (recursive) pending.addAll(var.referrers);
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * @return a short diagnostic of the position of this variable in the reference graph (chain
+     *         depth and fan-out), e.g. for debugging purposes
+     */
+    public String getReferenceDiagnostic()
+    {
+        return name + ": depth=" + getReferenceDepth() + ", source=" + getSource().getName() + ", referrers=" + getReferrerCount(false) + " (" + getReferrerCount(true) + " in total)";
+    }
+    
     /**
      * @return A list of all the variables currently pointing to this variable
      */
@@ -445,13 +863,73 @@ public class Var<T> implements XMLPersistent, VarListener<T>
      */
     public T getValue(boolean forbidNull) throws VarException
     {
-        T returnValue = reference == null ? value : reference.getValue();
+        T returnValue = reference == null ? value : getReadSource().getValue();
         
         if (returnValue == null && forbidNull) throw new VarException(this, "No value specified");
         
         return returnValue;
     }
     
+    /**
+     * @return a stamp identifying the current state of this variable. The stamp changes (and
+     *         increases) whenever the value of this variable effectively changes, or when the
+     *         value or reference of any variable along its reference chain changes. Comparing
+     *         stamps is therefore a constant-time way to know whether a variable has changed since
+     *         it was last read, without comparing its value (which can be costly for arrays). Note
+     *         that stamps are drawn from a global clock, hence they can be compared across
+     *         variables but are not consecutive.
+     */
+    public long getVersion()
+    {
+        long latest = version;
+        
+        for (Var<?> var = reference; var != null; var = var.reference)
+        {
+            long referenceVersion = var.version;
+            if (referenceVersion > latest) latest = referenceVersion;
+        }
+        
+        return latest;
+    }
+    
+    /**
+     * Stamps this variable with a new {@link #getVersion() version}. This method must be called by
+     * subclasses which store their value outside of this class, whenever that value changes
+     */
+    protected final void updateVersion()
+    {
+        version = versionClock.incrementAndGet();
+    }
+    
+    /**
+     * Compares two values of this variable, in order to detect whether a value change should be
+     * notified to the listeners
+     * 
+     * @param a
+     *            the first value
+     * @param b
+     *            the second value
+     * @return <code>true</code> if both values are equal, comparing arrays by content (including
+     *         primitive and nested arrays) rather than by identity, unless they are longer than
+     *         {@link #DEEP_EQUALS_MAX_LENGTH}. Subclasses whose values are costly to compare may
+     *         override this method (e.g. to compare by identity only)
+     */
+    protected boolean valueEquals(Object a, Object b)
+    {
+        if (a == b) return true;
+        
+        if (a == null || b == null) return false;
+        
+        if (a.getClass().isArray())
+        {
+            if (Array.getLength(a) > DEEP_EQUALS_MAX_LENGTH) return false;
+            
+            return Arrays.deepEquals(new Object[] { a }, new Object[] { b });
+        }
+        
+        return a.equals(b);
+    }
+    
     /**
      * @return a pretty-printed text representation of the variable's value. This text is used to
      *         display the value (e.g. in a graphical interface) or store the value into XML files.
@@ -463,7 +941,7 @@ public class Var<T> implements XMLPersistent, VarListener<T>
      */
     public String getValueAsString(boolean followReference)
     {
-        return reference != null && followReference ? reference.getValueAsString(followReference) : getValueAsString();
+        return reference != null && followReference ? getSource().getValueAsString() : getValueAsString();
     }
     
     /**
@@ -481,26 +959,47 @@ public class Var<T> implements XMLPersistent, VarListener<T>
         
         if (myValue.getClass().isArray())
         {
-            int length = Array.getLength(myValue);
-            
-            if (length == 0) return "";
-            
-            StringBuilder sb = new StringBuilder();
-            
-            Object arrayValue = Array.get(myValue, 0);
-            sb.append(arrayValue == null ? "null" : arrayValue.toString());
-            for (int i = 1; i < length; i++)
-            {
-                arrayValue = Array.get(myValue, i);
-                sb.append(" " + (arrayValue == null ? "null" : arrayValue.toString()));
-            }
-            
+            StringBuilder sb = new StringBuilder(ArrayFormatter.estimateLength(myValue));
+            ArrayFormatter.format(sb, myValue, " ");
             return sb.toString();
         }
         
         return myValue.toString();
     }
     
+    /**
+     * Writes the text representation of this variable's value (i.e. the text returned by
+     * {@link #getValueAsString()}) to the specified output. Arrays are written progressively,
+     * without building the entire text in memory, which makes this method better suited than
+     * {@link #getValueAsString()} to store very large values (e.g. into a file).
+     * 
+     * @param out
+     *            the output to write to
+     * @throws IOException
+     *             if the output cannot be written to
+     */
+    public void writeValue(Appendable out) throws IOException
+    {
+        if (hasCustomFormat.get(getClass()))
+        {
+            out.append(getValueAsString());
+            return;
+        }
+        
+        Object myValue = getValue();
+        
+        if (myValue == null) return;
+        
+        if (myValue.getClass().isArray())
+        {
+            ArrayFormatter.write(out, myValue, " ");
+        }
+        else
+        {
+            out.append(myValue.toString());
+        }
+    }
+    
     /**
      * Checks whether the type of the given variable is equal or extends this variable's type.<br>
      * If the result is true, then the given variable can become a link source for this variable
@@ -578,12 +1077,8 @@ public class Var<T> implements XMLPersistent, VarListener<T>
         
         if (length == 0) return "Empty list";
         
-        StringBuilder sb = new StringBuilder();
-        
-        sb.append(Array.get(myValue, 0).toString());
-        for (int i = 1; i < length; i++)
-            sb.append(separator + Array.get(myValue, i).toString());
-        
+        StringBuilder sb = new StringBuilder(ArrayFormatter.estimateLength(myValue));
+        ArrayFormatter.format(sb, myValue, separator);
         return sb.toString();
     }
     
@@ -595,10 +1090,11 @@ public class Var<T> implements XMLPersistent, VarListener<T>
      */
     public void removeListener(VarListener<T> listener)
     {
-        synchronized (listeners)
-        {
-            listeners.remove(listener);
-        }
+        if (listenerList.remove(listener)) return;
+        
+        // the listener may have been registered weakly
+        for (VarListener<T> l : listenerList.getListeners())
+            if (l instanceof WeakVarListener && ((WeakVarListener<T>) l).getListener() == listener) listenerList.remove(l);
     }
     
     /**
@@ -606,10 +1102,7 @@ public class Var<T> implements XMLPersistent, VarListener<T>
      */
     public void removeListeners()
     {
-        synchronized (listeners)
-        {
-            listeners.clear();
-        }
+        listenerList.clear();
     }
     
     /**
@@ -635,7 +1128,22 @@ public class Var<T> implements XMLPersistent, VarListener<T>
     @Override
     public boolean saveToXML(Node node) throws UnsupportedOperationException
     {
-        XMLUtil.setAttributeValue((Element) node, Var.XML_KEY_VALUE, value == null ? "" : getValueAsString());
+        StringBuilder text = new StringBuilder();
+        
+        if (getLocalValue() != null)
+        {
+            try
+            {
+                writeValue(text);
+            }
+            catch (IOException e)
+            {
+                // cannot happen, as a StringBuilder is written to
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        XMLUtil.setAttributeValue((Element) node, Var.XML_KEY_VALUE, text.toString());
         
         return true;
     }
@@ -728,6 +1236,9 @@ public class Var<T> implements XMLPersistent, VarListener<T>
                 variable.addReferrer(this);
             }
             
+            invalidateSources();
+            updateVersion();
+            
             fireVariableChanged(oldRef, reference);
         }
     }
@@ -775,20 +1286,198 @@ public class Var<T> implements XMLPersistent, VarListener<T>
      */
     public void setValue(T newValue) throws IllegalArgumentException
     {
-        if (this.reference != null)
+        if (!checkAssignable()) return;
+        
+        while (true)
         {
-            System.err.println("Warning: cannot assign a value to \"" + name + "\": it is pointing to another variable");
-            return;
+            T oldValue = this.value;
+            
+            if (valueEquals(oldValue, newValue)) return;
+            
+            if (valueUpdater.compareAndSet(this, oldValue, newValue))
+            {
+                updateVersion();
+                fireVariableChanged(oldValue, newValue);
+                return;
+            }
         }
+    }
+    
+    /**
+     * Atomically sets the value of this variable to the specified value if the current value
+     * equals the expected value, and notifies the listeners if the value has changed. Values are
+     * compared as in {@link #setValue(Object)}, i.e. with {@link Object#equals(Object)} (or by
+     * content for arrays). This method has no effect if this variable references another one.
+     * 
+     * @param expectedValue
+     *            the expected current value
+     * @param newValue
+     *            the new value
+     * @return <code>true</code> if the current value was equal to the expected value (and has been
+     *         replaced), <code>false</code> otherwise
+     */
+    public boolean compareAndSet(T expectedValue, T newValue)
+    {
+        if (!checkAssignable()) return false;
         
-        if (this.value == null && newValue == null) return;
-        
-        if (this.value != null && this.value.equals(newValue)) return;
+        while (true)
+        {
+            T currentValue = getLocalValue();
+            
+            if (!valueEquals(currentValue, expectedValue)) return false;
+            
+            if (valueEquals(currentValue, newValue)) return true;
+            
+            if (compareAndSetLocalValue(currentValue, newValue))
+            {
+                localValueReplaced(currentValue, newValue);
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Atomically updates the value of this variable with the result of the specified function, and
+     * notifies the listeners (once) if the value has changed. This method has no effect if this
+     * variable references another one.
+     * 
+     * @param updater
+     *            a side-effect free function computing the new value from the current one (it may
+     *            be called several times in case of concurrent updates)
+     * @return the value of this variable before the update
+     */
+    public T getAndUpdate(UnaryOperator<T> updater)
+    {
+        return update(updater, false);
+    }
+    
+    /**
+     * Atomically updates the value of this variable with the result of the specified function, and
+     * notifies the listeners (once) if the value has changed. This method has no effect if this
+     * variable references another one.
+     * 
+     * @param updater
+     *            a side-effect free function computing the new value from the current one (it may
+     *            be called several times in case of concurrent updates)
+     * @return the value of this variable after the update
+     */
+    public T updateAndGet(UnaryOperator<T> updater)
+    {
+        return update(updater, true);
+    }
+    
+    private T update(UnaryOperator<T> updater, boolean returnNewValue)
+    {
+        if (!checkAssignable()) return getValue();
         
-        T oldValue = this.value;
-        this.value = newValue;
+        while (true)
+        {
+            T currentValue = getLocalValue();
+            T newValue = updater.apply(currentValue);
+            
+            if (valueEquals(currentValue, newValue)) return currentValue;
+            
+            if (compareAndSetLocalValue(currentValue, newValue))
+            {
+                newValue = localValueReplaced(currentValue, newValue);
+                return returnNewValue ? newValue : currentValue;
+            }
+        }
+    }
+    
+    /**
+     * Notifies the listeners that the local value has been replaced via
+     * {@link #compareAndSetLocalValue(Object, Object)}. A <code>null</code> value is read back,
+     * since variables that cannot hold <code>null</code> store another value instead (e.g. their
+     * default value), in which case the value may not have changed at all.
+     * 
+     * @param oldValue
+     *            the value before the update
+     * @param newValue
+     *            the value passed to {@link #compareAndSetLocalValue(Object, Object)}
+     * @return the value actually stored
+     */
+    private T localValueReplaced(T oldValue, T newValue)
+    {
+        if (newValue == null)
+        {
+            newValue = getLocalValue();
+            
+            if (valueEquals(oldValue, newValue)) return newValue;
+        }
         
+        updateVersion();
         fireVariableChanged(oldValue, newValue);
+        
+        return newValue;
+    }
+    
+    /**
+     * @return the value stored locally in this variable (i.e. ignoring the reference, if any).
+     *         Subclasses storing their value outside of this class must override this method and
+     *         {@link #compareAndSetLocalValue(Object, Object)} accordingly.
+     */
+    protected T getLocalValue()
+    {
+        return value;
+    }
+    
+    /**
+     * Atomically replaces the local value of this variable, provided it has not changed since it
+     * was read via {@link #getLocalValue()}. This method neither updates the version nor notifies
+     * the listeners.
+     * 
+     * @param currentValue
+     *            the local value previously returned by {@link #getLocalValue()}
+     * @param newValue
+     *            the new local value
+     * @return <code>true</code> if the value was replaced, <code>false</code> if the local value
+     *         has changed in the meantime
+     */
+    protected boolean compareAndSetLocalValue(T currentValue, T newValue)
+    {
+        return valueUpdater.compareAndSet(this, currentValue, newValue);
+    }
+    
+    /**
+     * Indicates whether the specified event value is a placeholder for a value that is only
+     * computed when the listeners are notified (see {@link #resolveDeferredValue(Object)}). Events
+     * carrying such a value may be merged by an asynchronous {@link VarDispatcher} while they are
+     * pending, since their intermediate values were never computed. If a regular value change
+     * follows such an event, the placeholder is replaced by the old value of that change, which
+     * must therefore be the actual value of the variable at that time. This method returns
+     * <code>false</code> by default.
+     * 
+     * @param value
+     *            the new value of an event
+     * @return <code>true</code> if the value is a placeholder, <code>false</code> otherwise
+     */
+    boolean isDeferredValue(Object value)
+    {
+        return false;
+    }
+    
+    /**
+     * @param value
+     *            the new value of an event
+     * @return the value to deliver to the listeners, i.e. the actual value if the specified value
+     *         is a placeholder (see {@link #isDeferredValue(Object)}), or the value itself
+     */
+    T resolveDeferredValue(T value)
+    {
+        return value;
+    }
+    
+    /**
+     * @return <code>true</code> if a value can be assigned to this variable, <code>false</code>
+     *         (with a warning) if it is pointing to another variable
+     */
+    private boolean checkAssignable()
+    {
+        if (this.reference == null) return true;
+        
+        System.err.println("Warning: cannot assign a value to \"" + name + "\": it is pointing to another variable");
+        return false;
     }
     
     @Override
@@ -802,8 +1491,9 @@ public class Var<T> implements XMLPersistent, VarListener<T>
     }
     
     /**
-     * Called when this variable has a non-null reference and receives a value-changed event from
-     * this reference
+     * Called when the variable referenced by this variable changes. The values are converted
+     * into the type of this variable (see {@link #convertReferencedValue(Object)}) before being
+     * forwarded to the listeners of this variable.
      * 
      * @param source
      *            the variable sending the event. This should be equal to the result of
@@ -816,11 +1506,92 @@ public class Var<T> implements XMLPersistent, VarListener<T>
     @Override
     public void valueChanged(Var<T> source, T oldValue, T newValue)
     {
-        fireVariableChanged(oldValue, newValue);
+        fireVariableChanged(convertReferencedValue(oldValue), convertReferencedValue(newValue));
     }
     
     @Override
     public void referenceChanged(Var<T> source, Var<? extends T> oldReference, Var<? extends T> newReference)
     {
     }
+    
+    /**
+     * Source of a reference chain, cached together with the link stamp it was resolved at
+     * 
+     * @see Var#getSource()
+     * @see Var#getReadSource()
+     */
+    private static final class ResolvedSource<T>
+    {
+        final Var<? extends T> source;
+        
+        final Var<? extends T> readSource;
+        
+        final long stamp;
+        
+        ResolvedSource(Var<? extends T> source, Var<? extends T> readSource, long stamp)
+        {
+            this.source = source;
+            this.readSource = readSource;
+            this.stamp = stamp;
+        }
+    }
+    
+    /**
+     * Value changes deferred by a batch update
+     * 
+     * @see Var#beginBatch()
+     */
+    private static final class Batch
+    {
+        int depth = 0;
+        
+        /**
+         * Deferred changes, stored as {first old value, last new value} for each variable
+         */
+        private final Map<Var<?>, Object[]> changes = new LinkedHashMap<Var<?>, Object[]>();
+        
+        void defer(Var<?> variable, Object oldValue, Object newValue)
+        {
+            Object[] change = changes.get(variable);
+            
+            if (change == null) changes.put(variable, new Object[] { oldValue, newValue });
+            else change[1] = newValue;
+        }
+        
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        void flush()
+        {
+            if (changes.isEmpty()) return;
+            
+            // copy first, as listeners may start a new batch
+            Var[] variables = changes.keySet().toArray(new Var[changes.size()]);
+            Object[][] values = changes.values().toArray(new Object[changes.size()][]);
+            changes.clear();
+            
+            Throwable failure = null;
+            
+            for (int i = 0; i < variables.length; i++)
+            {
+                Object oldValue = values[i][0];
+                Object newValue = values[i][1];
+                
+                if (variables[i].valueEquals(oldValue, newValue)) continue;
+                
+                // a faulty listener must not prevent the notification of the other variables
+                try
+                {
+                    variables[i].fireVariableChanged(oldValue, newValue);
+                }
+                catch (Throwable t)
+                {
+                    if (failure == null) failure = t;
+                    else failure.addSuppressed(t);
+                }
+            }
+            
+            if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+            if (failure instanceof Error) throw (Error) failure;
+            if (failure != null) throw new RuntimeException(failure);
+        }
+    }
 }
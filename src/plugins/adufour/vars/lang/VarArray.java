@@ -3,6 +3,7 @@ package plugins.adufour.vars.lang;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Spliterator;
 
 import plugins.adufour.vars.util.VarListener;
 
@@ -11,8 +12,8 @@ import plugins.adufour.vars.util.VarListener;
  * The type of the underlying array cannot be changed. To creates arrays of changeable types, use
  * {@link VarMutableArray} instead.<br/>
  * NOTE: this class provides convenience methods to add elements (similarly to the {@link ArrayList}
- * class, however performance on large arrays is not optimal. For performance-critical applications,
- * use the {@link VarArray} instead
+ * class, however performance on large arrays is not optimal. To collect many elements one at a
+ * time, use {@link VarList} instead
  * 
  * @author Alexandre Dufour
  * 
@@ -56,7 +57,9 @@ public class VarArray<T> extends VarGenericArray<T[]> implements Iterable<T>
     /**
      * Inserts the specified elements at the end of this array. This methods acts similarly to
      * {@link ArrayList#add(Object)}: a old array is replaced by a new array where the contents of
-     * the old array is copied and the specified element is added last
+     * the old array is copied and the specified element is added last. Since the whole array is
+     * copied (and the listeners notified) on each call, adding many elements one at a time should
+     * be done with a {@link VarList} instead
      * 
      * @param elements
      *            the elements to add
@@ -64,13 +67,10 @@ public class VarArray<T> extends VarGenericArray<T[]> implements Iterable<T>
     public void add(T... elements)
     {
         T[] oldArray = getValue();
-        ArrayList<T> newArray = new ArrayList<T>(size() + elements.length);
+        T[] newArray = Arrays.copyOf(oldArray, oldArray.length + elements.length);
+        System.arraycopy(elements, 0, newArray, oldArray.length, elements.length);
         
-        for (T oldElem : oldArray)
-            newArray.add(oldElem);
-        newArray.addAll(Arrays.asList(elements));
-        
-        setValue(newArray.toArray(oldArray));
+        setValue(newArray);
     }
 
     @Override
@@ -78,4 +78,14 @@ public class VarArray<T> extends VarGenericArray<T[]> implements Iterable<T>
     {
         return Arrays.asList(getValue()).iterator();
     }
+    
+    /**
+     * @return a {@link Spliterator#SIZED sized} spliterator over the current value of this
+     *         variable (the array is not copied)
+     */
+    @Override
+    public Spliterator<T> spliterator()
+    {
+        return Arrays.spliterator(getValue());
+    }
 }
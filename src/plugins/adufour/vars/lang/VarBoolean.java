@@ -1,16 +1,31 @@
 package plugins.adufour.vars.lang;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import plugins.adufour.vars.gui.VarEditor;
 import plugins.adufour.vars.gui.VarEditorFactory;
+import plugins.adufour.vars.util.BooleanVarListener;
+import plugins.adufour.vars.util.ListenerList;
+import plugins.adufour.vars.util.VarException;
 import plugins.adufour.vars.util.VarListener;
 
 /**
- * Boolean variable
+ * Boolean variable. The value is stored as a primitive boolean, and can be read or written without
+ * boxing via the {@link #getBoolean()} and {@link #setBoolean(boolean)} methods. Listeners
+ * implementing the {@link BooleanVarListener} interface are notified without boxing as well, as
+ * long as no regular {@link VarListener} is registered (or a batch update is running).
  * 
  * @author Alexandre Dufour
  */
 public class VarBoolean extends Var<Boolean>
 {
+    /**
+     * The local value of this variable
+     */
+    private final AtomicBoolean value = new AtomicBoolean();
+    
+    private final ListenerList<BooleanVarListener> booleanListeners = new ListenerList<BooleanVarListener>(BooleanVarListener.class);
+    
     /**
      * @param name
      *            the variable name
@@ -43,7 +58,38 @@ public class VarBoolean extends Var<Boolean>
      */
     public VarBoolean(String name, Boolean defaultValue, VarListener<Boolean> defaultListener)
     {
-        super(name, Boolean.TYPE, defaultValue, defaultListener);
+        super(name, Boolean.TYPE, defaultValue == null ? Boolean.FALSE : defaultValue, defaultListener);
+        
+        this.value.set(getDefaultValue());
+    }
+    
+    /**
+     * Adds the specified primitive listener to the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to register
+     */
+    public void addListener(BooleanVarListener listener)
+    {
+        booleanListeners.add(listener);
+    }
+    
+    /**
+     * Removes the specified primitive listener from the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeListener(BooleanVarListener listener)
+    {
+        booleanListeners.remove(listener);
+    }
+    
+    @Override
+    public void removeListeners()
+    {
+        super.removeListeners();
+        booleanListeners.clear();
     }
     
     @Override
@@ -60,15 +106,27 @@ public class VarBoolean extends Var<Boolean>
      */
     public Boolean toggleValue()
     {
-        Boolean value = getValue();
-        
-        if (getReference() != null) return value;
-        
-        Boolean newValue = !value;
+        if (getReference() != null) return getValue();
         
-        setValue(newValue);
+        while (true)
+        {
+            boolean oldValue = value.get();
+            
+            if (value.compareAndSet(oldValue, !oldValue))
+            {
+                updateVersion();
+                fireVariableChanged(oldValue, !oldValue);
+                return !oldValue;
+            }
+        }
+    }
+    
+    @Override
+    public Boolean getValue(boolean forbidNull) throws VarException
+    {
+        if (getReference() == null) return value.get();
         
-        return newValue;
+        return super.getValue(forbidNull);
     }
     
     @Override
@@ -76,4 +134,102 @@ public class VarBoolean extends Var<Boolean>
     {
         return VarEditorFactory.getDefaultFactory().createCheckBox(this);
     }
+    /**
+     * @return the value of this variable (or that of the referenced variable, if any) as a
+     *         primitive boolean
+     * @throws VarException
+     *             if the referenced variable has no value
+     */
+    public boolean getBoolean() throws VarException
+    {
+        if (getReference() == null) return value.get();
+        
+        Var<?> source = getReadSource();
+        
+        if (source instanceof VarBoolean) return ((VarBoolean) source).getBoolean();
+        
+        Object referencedValue = source.getValue();
+        
+        if (referencedValue == null) throw new VarException(this, "No value specified");
+        
+        return (Boolean) referencedValue;
+    }
+    
+    /**
+     * Sets the value of this variable (see {@link #setBoolean(boolean)}). Since this variable
+     * cannot hold a <code>null</code> value, a <code>null</code> argument resets the variable to
+     * its default value
+     */
+    @Override
+    public void setValue(Boolean newValue) throws IllegalArgumentException
+    {
+        setBoolean(newValue == null ? getDefaultValue() : newValue);
+    }
+    
+    /**
+     * Sets the value of this variable and notify the listeners, without boxing. This method can
+     * only be called if this variable is not referencing another one.
+     * 
+     * @param newValue
+     *            the new value
+     */
+    public void setBoolean(boolean newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return;
+        }
+        
+        boolean oldValue = value.getAndSet(newValue);
+        
+        if (oldValue == newValue) return;
+        
+        updateVersion();
+        
+        fireVariableChanged(oldValue, newValue);
+    }
+    
+    @Override
+    protected Boolean getLocalValue()
+    {
+        return value.get();
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(Boolean currentValue, Boolean newValue)
+    {
+        return value.compareAndSet(currentValue, newValue == null ? getDefaultValue() : newValue);
+    }
+    
+    /**
+     * Notifies the listeners of a value change. Values are only boxed if regular
+     * {@link VarListener}s are registered, or if a batch update is running
+     * 
+     * @param oldValue
+     *            the old variable value
+     * @param newValue
+     *            the new variable value
+     */
+    protected void fireVariableChanged(boolean oldValue, boolean newValue)
+    {
+        if (!listenerList.isEmpty() || isReferenced() || isBatchUpdating())
+        {
+            fireVariableChanged(Boolean.valueOf(oldValue), Boolean.valueOf(newValue));
+            return;
+        }
+        
+        for (BooleanVarListener l : booleanListeners.getListeners())
+            l.valueChanged(this, oldValue, newValue);
+    }
+    
+    @Override
+    protected void fireTypedListeners(Object oldValue, Object newValue)
+    {
+        boolean oldBoolean = oldValue == null ? false : (Boolean) oldValue;
+        boolean newBoolean = newValue == null ? false : (Boolean) newValue;
+        
+        for (BooleanVarListener l : booleanListeners.getListeners())
+            l.valueChanged(this, oldBoolean, newBoolean);
+    }
 }
@@ -0,0 +1,427 @@
+package plugins.adufour.vars.lang;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import plugins.adufour.vars.util.VarDispatchMode;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Asynchronous notifier of the listeners of a {@link Var}. Events are queued by the thread changing
+ * the variable, and delivered in order by a single task at a time running on an {@link Executor},
+ * so that slow listeners do not stall that thread. The queue depth and dispatch latency can be
+ * monitored via this object.
+ * 
+ * @author Alexandre Dufour
+ * @param <T>
+ *            the type of the variable
+ * @see Var#setDispatchMode(VarDispatchMode, Executor)
+ */
+public final class VarDispatcher<T>
+{
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    
+    /**
+     * The default maximum number of pending events of a dispatcher (see
+     * {@link #setMaxQueueDepth(int)})
+     */
+    public static final int DEFAULT_MAX_QUEUE_DEPTH = 4096;
+    
+    private static Executor defaultExecutor;
+    
+    private final Var<T> variable;
+    
+    private final VarDispatchMode mode;
+    
+    private final Executor executor;
+    
+    /**
+     * Pending events (guarded by itself)
+     */
+    private final ArrayDeque<Event> queue = new ArrayDeque<Event>();
+    
+    /**
+     * Whether a delivery task is currently scheduled or running (guarded by {@link #queue})
+     */
+    private boolean scheduled = false;
+    
+    /**
+     * The thread currently delivering events, if any (guarded by {@link #queue})
+     */
+    private Thread deliveryThread;
+    
+    private volatile int maxQueueDepth = DEFAULT_MAX_QUEUE_DEPTH;
+    
+    private final AtomicLong dispatchedCount = new AtomicLong();
+    
+    private final AtomicLong conflatedCount = new AtomicLong();
+    
+    private final AtomicLong totalLatency = new AtomicLong();
+    
+    private final AtomicLong maxLatency = new AtomicLong();
+    
+    private final Runnable deliveryTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            deliverPendingEvents();
+        }
+    };
+    
+    VarDispatcher(Var<T> variable, VarDispatchMode mode, Executor executor)
+    {
+        this.variable = variable;
+        this.mode = mode;
+        this.executor = executor;
+    }
+    
+    /**
+     * @return the shared executor used by default to notify listeners asynchronously. This executor
+     *         runs on a bounded pool of daemon threads (one per processor) with a bounded task
+     *         queue. When the queue is full, events are delivered in the thread changing the
+     *         variable.
+     */
+    public static synchronized Executor getDefaultExecutor()
+    {
+        if (defaultExecutor == null)
+        {
+            int nThreads = Runtime.getRuntime().availableProcessors();
+            
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(nThreads, nThreads, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(DEFAULT_QUEUE_CAPACITY), new ThreadFactory()
+            {
+                private final AtomicInteger threadCount = new AtomicInteger();
+                
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "Var dispatcher " + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+            
+            pool.allowCoreThreadTimeOut(true);
+            
+            defaultExecutor = pool;
+        }
+        
+        return defaultExecutor;
+    }
+    
+    /**
+     * @return the variable whose listeners are notified by this dispatcher
+     */
+    public Var<T> getVariable()
+    {
+        return variable;
+    }
+    
+    /**
+     * @return the dispatch mode of this dispatcher
+     */
+    public VarDispatchMode getMode()
+    {
+        return mode;
+    }
+    
+    /**
+     * @return the number of events waiting to be delivered
+     */
+    public int getQueueDepth()
+    {
+        synchronized (queue)
+        {
+            return queue.size();
+        }
+    }
+    
+    /**
+     * @return the maximum number of pending events (see {@link #setMaxQueueDepth(int)})
+     */
+    public int getMaxQueueDepth()
+    {
+        return maxQueueDepth;
+    }
+    
+    /**
+     * Sets the maximum number of pending events. In {@link VarDispatchMode#ORDERED} mode, once this
+     * number is reached (i.e. the listeners cannot keep up with the changes), the thread changing
+     * the variable waits until an event is delivered, so that memory remains bounded without
+     * losing any event. Listeners should therefore not wait for a thread changing the variable.
+     * Changes are still queued beyond this number if they are made by a listener of the variable
+     * while it is being notified, or if the waiting thread is interrupted (in which case its
+     * interrupted status is restored). Reference changes are always queued. This number has no
+     * effect in {@link VarDispatchMode#CONFLATED} mode, where pending value changes are merged.
+     * 
+     * @param maxQueueDepth
+     *            the maximum number of pending events (default: {@value #DEFAULT_MAX_QUEUE_DEPTH})
+     */
+    public void setMaxQueueDepth(int maxQueueDepth)
+    {
+        if (maxQueueDepth < 1) throw new IllegalArgumentException("Invalid queue depth: " + maxQueueDepth);
+        
+        this.maxQueueDepth = maxQueueDepth;
+    }
+    
+    /**
+     * @return the number of events delivered so far
+     */
+    public long getDispatchedCount()
+    {
+        return dispatchedCount.get();
+    }
+    
+    /**
+     * @return the number of value changes that were merged into a pending event (in
+     *         {@link VarDispatchMode#CONFLATED} mode, or if their value is only computed upon
+     *         delivery, e.g. for a {@link VarList})
+     */
+    public long getConflatedCount()
+    {
+        return conflatedCount.get();
+    }
+    
+    /**
+     * @return the average time (in nanoseconds) elapsed between the moment an event is queued and
+     *         the moment its delivery starts
+     */
+    public long getMeanLatency()
+    {
+        long count = dispatchedCount.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+    
+    /**
+     * @return the longest time (in nanoseconds) elapsed between the moment an event was queued and
+     *         the moment its delivery started
+     */
+    public long getMaxLatency()
+    {
+        return maxLatency.get();
+    }
+    
+    /**
+     * Resets the delivery statistics (the queue is left untouched)
+     */
+    public void resetStatistics()
+    {
+        dispatchedCount.set(0);
+        conflatedCount.set(0);
+        totalLatency.set(0);
+        maxLatency.set(0);
+    }
+    
+    void postValueChanged(T oldValue, T newValue)
+    {
+        boolean interrupted = false;
+        
+        try
+        {
+            while (true)
+            {
+                synchronized (queue)
+                {
+                    Event last = queue.peekLast();
+                    
+                    if (last != null && !last.isReferenceChange && (mode == VarDispatchMode.CONFLATED || isDeferred(last, newValue)))
+                    {
+                        // keep the original old value and timestamp, only the latest value matters
+                        last.newValue = newValue;
+                        conflatedCount.incrementAndGet();
+                        return;
+                    }
+                    
+                    boolean full = mode == VarDispatchMode.ORDERED && queue.size() >= maxQueueDepth;
+                    
+                    // a listener cannot wait for its own delivery
+                    if (!full || interrupted || deliveryThread == Thread.currentThread())
+                    {
+                        // a pending placeholder must not be resolved to a value set after it
+                        if (last != null && !last.isReferenceChange && variable.isDeferredValue(last.newValue) && !variable.isDeferredValue(newValue))
+                        {
+                            last.newValue = oldValue;
+                        }
+                        
+                        queue.add(new Event(false, oldValue, newValue));
+                        break;
+                    }
+                    
+                    if (scheduled)
+                    {
+                        try
+                        {
+                            queue.wait();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            interrupted = true;
+                        }
+                        continue;
+                    }
+                }
+                
+                // the queue is full but not being delivered (e.g. after an error in a listener)
+                schedule();
+            }
+        }
+        finally
+        {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        
+        schedule();
+    }
+    
+    /**
+     * @return <code>true</code> if both the pending event and the new value are placeholders
+     *         resolved upon delivery (see {@link Var#isDeferredValue(Object)}), in which case
+     *         merging them loses nothing
+     */
+    private boolean isDeferred(Event last, T newValue)
+    {
+        return variable.isDeferredValue(newValue) && variable.isDeferredValue(last.newValue);
+    }
+    
+    void postReferenceChanged(Var<? extends T> oldReference, Var<? extends T> newReference)
+    {
+        synchronized (queue)
+        {
+            queue.add(new Event(true, oldReference, newReference));
+        }
+        
+        schedule();
+    }
+    
+    private void schedule()
+    {
+        synchronized (queue)
+        {
+            if (scheduled || queue.isEmpty()) return;
+            scheduled = true;
+        }
+        
+        try
+        {
+            executor.execute(deliveryTask);
+        }
+        catch (RejectedExecutionException e)
+        {
+            deliveryTask.run();
+        }
+    }
+    
+    private void deliverPendingEvents()
+    {
+        boolean drained = false;
+        
+        try
+        {
+            while (true)
+            {
+                Event event;
+                
+                synchronized (queue)
+                {
+                    event = queue.poll();
+                    
+                    // wake up the threads waiting for room in the queue
+                    queue.notifyAll();
+                    
+                    if (event == null)
+                    {
+                        scheduled = false;
+                        deliveryThread = null;
+                        drained = true;
+                        return;
+                    }
+                    
+                    deliveryThread = Thread.currentThread();
+                }
+                
+                long latency = System.nanoTime() - event.postTime;
+                
+                dispatchedCount.incrementAndGet();
+                totalLatency.addAndGet(latency);
+                
+                long max;
+                while (latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency))
+                    ;
+                
+                deliver(event);
+            }
+        }
+        finally
+        {
+            // an error escaped from a listener: the next event will schedule a new delivery
+            if (!drained) synchronized (queue)
+            {
+                scheduled = false;
+                deliveryThread = null;
+                queue.notifyAll();
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void deliver(Event event)
+    {
+        T newValue = (T) event.newValue;
+        
+        if (!event.isReferenceChange && variable.isDeferredValue(newValue))
+        {
+            newValue = variable.resolveDeferredValue(newValue);
+            
+            // the value changed back before its delivery
+            if (newValue == event.oldValue) return;
+        }
+        
+        for (VarListener<T> l : variable.listenerList.getListeners())
+        {
+            // a faulty listener must not prevent the notification of the others
+            try
+            {
+                if (event.isReferenceChange)
+                {
+                    l.referenceChanged(variable, (Var<? extends T>) event.oldValue, (Var<? extends T>) event.newValue);
+                }
+                else
+                {
+                    l.valueChanged(variable, (T) event.oldValue, newValue);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * A queued value or reference change
+     */
+    private static final class Event
+    {
+        final boolean isReferenceChange;
+        
+        final Object oldValue;
+        
+        Object newValue;
+        
+        final long postTime = System.nanoTime();
+        
+        Event(boolean isReferenceChange, Object oldValue, Object newValue)
+        {
+            this.isReferenceChange = isReferenceChange;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+    }
+}
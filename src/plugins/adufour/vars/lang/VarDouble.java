@@ -1,10 +1,35 @@
 package plugins.adufour.vars.lang;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import plugins.adufour.vars.util.DoubleVarListener;
+import plugins.adufour.vars.util.ListenerList;
 import plugins.adufour.vars.util.VarException;
 import plugins.adufour.vars.util.VarListener;
 
+/**
+ * Variable holding a double-precision floating-point value. The value is stored as a primitive
+ * double, and can be read or written without boxing via the {@link #getDouble()} and
+ * {@link #setDouble(double)} methods. Listeners implementing the {@link DoubleVarListener}
+ * interface are notified without boxing as well, as long as no regular {@link VarListener} is
+ * registered (or a batch update is running).<br/>
+ * The value may be updated concurrently by several threads via the lock-free
+ * {@link #compareAndSet(double, double)} and {@link #getAndAdd(double)} methods.
+ * 
+ * @author Alexandre Dufour
+ */
 public class VarDouble extends VarNumber<Double>
 {
+    /**
+     * The local value of this variable, stored as raw bits (see
+     * {@link Double#doubleToRawLongBits(double)}) to allow atomic updates
+     */
+    private volatile long bits;
+    
+    private static final AtomicLongFieldUpdater<VarDouble> bitsUpdater = AtomicLongFieldUpdater.newUpdater(VarDouble.class, "bits");
+    
+    private final ListenerList<DoubleVarListener> doubleListeners = new ListenerList<DoubleVarListener>(DoubleVarListener.class);
+    
     /**
      * @deprecated use {@link #VarDouble(String, double)} instead
      * @param name
@@ -34,6 +59,37 @@ public class VarDouble extends VarNumber<Double>
     public VarDouble(String name, double defaultValue, VarListener<Double> defaultListener)
     {
         super(name, Double.TYPE, defaultValue, defaultListener);
+        
+        this.bits = Double.doubleToRawLongBits(defaultValue);
+    }
+    
+    /**
+     * Adds the specified primitive listener to the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to register
+     */
+    public void addListener(DoubleVarListener listener)
+    {
+        doubleListeners.add(listener);
+    }
+    
+    /**
+     * Removes the specified primitive listener from the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeListener(DoubleVarListener listener)
+    {
+        doubleListeners.remove(listener);
+    }
+    
+    @Override
+    public void removeListeners()
+    {
+        super.removeListeners();
+        doubleListeners.clear();
     }
     
     @Override
@@ -45,7 +101,7 @@ public class VarDouble extends VarNumber<Double>
     @Override
     public int compareTo(Double d)
     {
-        return getValue().compareTo(d);
+        return Double.compare(getDouble(), d);
     }
     
     @Override
@@ -57,8 +113,206 @@ public class VarDouble extends VarNumber<Double>
     @Override
     public Double getValue(boolean forbidNull) throws VarException
     {
+        if (getReference() == null) return Double.longBitsToDouble(bits);
+        
         Number number = super.getValue(forbidNull);
         
         return number == null ? null : number.doubleValue();
     }
+    
+    @Override
+    protected Double convertReferencedValue(Object value)
+    {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+    
+    /**
+     * @return the value of this variable (or that of the referenced variable, if any) as a
+     *         primitive double
+     * @throws VarException
+     *             if the referenced variable has no value
+     */
+    public double getDouble() throws VarException
+    {
+        if (getReference() == null) return Double.longBitsToDouble(bits);
+        
+        Var<?> source = getReadSource();
+        
+        if (source instanceof VarDouble) return ((VarDouble) source).getDouble();
+        
+        Object number = source.getValue();
+        
+        if (number == null) throw new VarException(this, "No value specified");
+        
+        return ((Number) number).doubleValue();
+    }
+    
+    /**
+     * Sets the value of this variable (see {@link #setDouble(double)}). Since this variable
+     * cannot hold a <code>null</code> value, a <code>null</code> argument resets the variable to
+     * its default value
+     */
+    @Override
+    public void setValue(Double newValue) throws IllegalArgumentException
+    {
+        setDouble(newValue == null ? getDefaultValue() : newValue);
+    }
+    
+    /**
+     * Sets the value of this variable and notify the listeners, without boxing. This method can
+     * only be called if this variable is not referencing another one.
+     * 
+     * @param newValue
+     *            the new value
+     */
+    public void setDouble(double newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return;
+        }
+        
+        double oldValue = Double.longBitsToDouble(bitsUpdater.getAndSet(this, Double.doubleToRawLongBits(newValue)));
+        
+        // same semantics as Double.equals() (i.e. NaN equals NaN, but 0.0 does not equal -0.0)
+        if (Double.doubleToLongBits(oldValue) == Double.doubleToLongBits(newValue)) return;
+        
+        updateVersion();
+        
+        fireVariableChanged(oldValue, newValue);
+    }
+    
+    /**
+     * Atomically sets the value of this variable to the specified value if the current value
+     * equals the expected value (in the sense of {@link Double#equals(Object)}), and notifies the
+     * listeners if the value has changed. This method has no effect if this variable references
+     * another one.
+     * 
+     * @param expectedValue
+     *            the expected current value
+     * @param newValue
+     *            the new value
+     * @return <code>true</code> if the current value was equal to the expected value (and has been
+     *         replaced), <code>false</code> otherwise
+     */
+    public boolean compareAndSet(double expectedValue, double newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return false;
+        }
+        
+        long expectedBits = Double.doubleToLongBits(expectedValue);
+        
+        while (true)
+        {
+            long currentBits = bits;
+            
+            // compare canonical bits, as several raw representations of NaN may coexist
+            if (Double.doubleToLongBits(Double.longBitsToDouble(currentBits)) != expectedBits) return false;
+            
+            if (expectedBits == Double.doubleToLongBits(newValue)) return true;
+            
+            if (bitsUpdater.compareAndSet(this, currentBits, Double.doubleToRawLongBits(newValue)))
+            {
+                updateVersion();
+                fireVariableChanged(Double.longBitsToDouble(currentBits), newValue);
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Atomically adds the specified amount to the value of this variable, and notifies the
+     * listeners. This method has no effect if this variable references another one.
+     * 
+     * @param delta
+     *            the amount to add
+     * @return the value of this variable before the addition
+     */
+    public double getAndAdd(double delta)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return getDouble();
+        }
+        
+        while (true)
+        {
+            long currentBits = bits;
+            double oldValue = Double.longBitsToDouble(currentBits);
+            double newValue = oldValue + delta;
+            
+            if (Double.doubleToLongBits(oldValue) == Double.doubleToLongBits(newValue)) return oldValue;
+            
+            if (bitsUpdater.compareAndSet(this, currentBits, Double.doubleToRawLongBits(newValue)))
+            {
+                updateVersion();
+                fireVariableChanged(oldValue, newValue);
+                return oldValue;
+            }
+        }
+    }
+    
+    /**
+     * Atomically adds the specified amount to the value of this variable, and notifies the
+     * listeners. This method has no effect if this variable references another one.
+     * 
+     * @param delta
+     *            the amount to add
+     * @return the value of this variable after the addition
+     */
+    public double addAndGet(double delta)
+    {
+        if (getReference() != null) return getAndAdd(delta);
+        
+        return getAndAdd(delta) + delta;
+    }
+    
+    @Override
+    protected Double getLocalValue()
+    {
+        return Double.longBitsToDouble(bits);
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(Double currentValue, Double newValue)
+    {
+        double update = newValue == null ? getDefaultValue() : newValue;
+        return bitsUpdater.compareAndSet(this, Double.doubleToRawLongBits(currentValue), Double.doubleToRawLongBits(update));
+    }
+    
+    /**
+     * Notifies the listeners of a value change. Values are only boxed if regular
+     * {@link VarListener}s are registered, or if a batch update is running
+     * 
+     * @param oldValue
+     *            the old variable value
+     * @param newValue
+     *            the new variable value
+     */
+    protected void fireVariableChanged(double oldValue, double newValue)
+    {
+        if (!listenerList.isEmpty() || isReferenced() || isBatchUpdating())
+        {
+            fireVariableChanged(Double.valueOf(oldValue), Double.valueOf(newValue));
+            return;
+        }
+        
+        for (DoubleVarListener l : doubleListeners.getListeners())
+            l.valueChanged(this, oldValue, newValue);
+    }
+    
+    @Override
+    protected void fireTypedListeners(Object oldValue, Object newValue)
+    {
+        double oldDouble = oldValue == null ? Double.NaN : ((Number) oldValue).doubleValue();
+        double newDouble = newValue == null ? Double.NaN : ((Number) newValue).doubleValue();
+        
+        for (DoubleVarListener l : doubleListeners.getListeners())
+            l.valueChanged(this, oldDouble, newDouble);
+    }
 }
@@ -0,0 +1,277 @@
+package plugins.adufour.vars.lang;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.function.DoubleBinaryOperator;
+
+import plugins.adufour.vars.gui.VarEditor;
+import plugins.adufour.vars.gui.VarEditorFactory;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Variable accumulating double values contributed concurrently by many threads (e.g. the workers of
+ * a parallel computation), such as a total intensity or a best score. Contributions are applied to
+ * striped cells (see {@link DoubleAccumulator}) and therefore do not contend with each other, while
+ * the accumulated value is published to the listeners at a bounded rate (see
+ * {@link #setPublishInterval(long)}), so as not to flood them (and the graphical interface) with
+ * events. By default, this variable is displayed as a read-only label.<br/>
+ * Notes:
+ * <ul>
+ * <li>{@link #getValue()} always returns the current accumulated value, even if it has not been
+ * published yet</li>
+ * <li>{@link #setValue(Double)} and {@link #reset()} are not atomic with respect to concurrent
+ * contributions, and should be called while no contribution is in progress</li>
+ * <li>Contributions are applied locally, and are ignored while this variable references another
+ * one</li>
+ * <li>The {@link #getVersion() version} of this variable tracks the published value: it changes
+ * when the value is notified to the listeners, not on every contribution (which would make all
+ * the contributing threads contend on the version clock)</li>
+ * </ul>
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarDoubleAccumulator extends VarNumber<Double>
+{
+    /**
+     * The sum function
+     */
+    public static final DoubleBinaryOperator SUM = new DoubleBinaryOperator()
+    {
+        @Override
+        public double applyAsDouble(double left, double right)
+        {
+            return left + right;
+        }
+    };
+    
+    /**
+     * The maximum function (use {@link Double#NEGATIVE_INFINITY} as identity)
+     */
+    public static final DoubleBinaryOperator MAX = new DoubleBinaryOperator()
+    {
+        @Override
+        public double applyAsDouble(double left, double right)
+        {
+            return Math.max(left, right);
+        }
+    };
+    
+    /**
+     * The minimum function (use {@link Double#POSITIVE_INFINITY} as identity)
+     */
+    public static final DoubleBinaryOperator MIN = new DoubleBinaryOperator()
+    {
+        @Override
+        public double applyAsDouble(double left, double right)
+        {
+            return Math.min(left, right);
+        }
+    };
+    
+    private final DoubleAccumulator accumulator;
+    
+    /**
+     * The last value notified to the listeners
+     */
+    private double published;
+    
+    private final RatePublisher publisher = new RatePublisher(new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            publish();
+        }
+    }, VarLongAdder.DEFAULT_PUBLISH_INTERVAL);
+    
+    /**
+     * Creates a new variable accumulating the sum of all contributions (starting at 0)
+     * 
+     * @param name
+     *            the name of this variable
+     */
+    public VarDoubleAccumulator(String name)
+    {
+        this(name, SUM, 0.0, null);
+    }
+    
+    /**
+     * Creates a new variable accumulating contributions with the specified function
+     * 
+     * @param name
+     *            the name of this variable
+     * @param function
+     *            a side-effect free, associative and commutative function combining the current
+     *            value with a contribution (e.g. {@link #SUM}, {@link #MAX} or {@link #MIN})
+     * @param identity
+     *            the initial value of this variable, which must be an identity element of the
+     *            function (e.g. 0 for a sum, {@link Double#NEGATIVE_INFINITY} for a maximum)
+     * @param defaultListener
+     *            A listener to add to this variable immediately after creation (or
+     *            <code>null</code>)
+     */
+    public VarDoubleAccumulator(String name, DoubleBinaryOperator function, double identity, VarListener<Double> defaultListener)
+    {
+        super(name, Double.TYPE, identity, defaultListener);
+        accumulator = new DoubleAccumulator(function, identity);
+        published = identity;
+    }
+    
+    /**
+     * Contributes the specified value to this variable
+     * 
+     * @param x
+     *            the value to accumulate
+     */
+    public void accumulate(double x)
+    {
+        accumulator.accumulate(x);
+        publisher.changed();
+    }
+    
+    /**
+     * Resets this variable to its identity value
+     */
+    public void reset()
+    {
+        setValue(getDefaultValue());
+    }
+    
+    /**
+     * @return the value of this variable (or that of the referenced variable, if any) as a
+     *         primitive double. The returned value is the current accumulated value, which may not
+     *         have been published yet
+     */
+    public double getDouble()
+    {
+        if (getReference() == null) return accumulator.get();
+        
+        Number number = super.getValue(true);
+        
+        return number.doubleValue();
+    }
+    
+    @Override
+    public Double getValue(boolean forbidNull)
+    {
+        if (getReference() == null) return accumulator.get();
+        
+        Number number = super.getValue(forbidNull);
+        
+        return number == null ? null : number.doubleValue();
+    }
+    
+    @Override
+    protected Double convertReferencedValue(Object value)
+    {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+    
+    /**
+     * Sets the value of this variable and notifies the listeners immediately. Since this variable
+     * cannot hold a <code>null</code> value, a <code>null</code> argument resets the variable to
+     * its identity value
+     */
+    @Override
+    public void setValue(Double newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return;
+        }
+        
+        synchronized (accumulator)
+        {
+            accumulator.reset();
+            if (newValue != null) accumulator.accumulate(newValue);
+        }
+        
+        publish();
+    }
+    
+    /**
+     * @return the minimum time (in milliseconds) between two notifications of the listeners
+     */
+    public long getPublishInterval()
+    {
+        return publisher.getInterval();
+    }
+    
+    /**
+     * Sets the minimum time between two notifications of the listeners. Contributions occurring in
+     * between are notified together, in a single event fired by a background thread.
+     * 
+     * @param interval
+     *            the time in milliseconds (0 to notify the listeners after each contribution, in
+     *            the contributing thread)
+     */
+    public void setPublishInterval(long interval)
+    {
+        publisher.setInterval(interval);
+    }
+    
+    /**
+     * Notifies the listeners of the current value of this variable (if it has changed since the
+     * last notification). This method is called automatically at the publication rate, but may be
+     * called explicitly, e.g. to display the final value at the end of a computation.
+     */
+    public void publish()
+    {
+        double current, previous;
+        
+        synchronized (accumulator)
+        {
+            current = accumulator.get();
+            previous = published;
+            
+            if (Double.doubleToLongBits(current) == Double.doubleToLongBits(previous)) return;
+            
+            published = current;
+            updateVersion();
+        }
+        
+        // listeners are notified without holding the lock, as they may take some time (or call
+        // this variable back from another thread)
+        fireVariableChanged(previous, current);
+    }
+    
+    @Override
+    protected Double getLocalValue()
+    {
+        return accumulator.get();
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(Double currentValue, Double newValue)
+    {
+        synchronized (accumulator)
+        {
+            if (Double.doubleToLongBits(accumulator.get()) != Double.doubleToLongBits(currentValue)) return false;
+            
+            accumulator.reset();
+            if (newValue != null) accumulator.accumulate(newValue);
+            
+            // the caller notifies the listeners
+            published = accumulator.get();
+            return true;
+        }
+    }
+    
+    @Override
+    public Double parse(String s)
+    {
+        return Double.parseDouble(s);
+    }
+    
+    @Override
+    public int compareTo(Double value)
+    {
+        return Double.compare(getDouble(), value);
+    }
+    
+    @Override
+    public VarEditor<Double> createVarEditor()
+    {
+        return VarEditorFactory.getDefaultFactory().createLabel(this);
+    }
+}
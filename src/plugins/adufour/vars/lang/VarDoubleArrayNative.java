@@ -1,5 +1,13 @@
 package plugins.adufour.vars.lang;
 
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+
+import plugins.adufour.vars.util.ArrayStreams;
+import plugins.adufour.vars.util.NumberArrayParser;
 import plugins.adufour.vars.util.VarListener;
 
 /**
@@ -32,6 +40,16 @@ public class VarDoubleArrayNative extends VarGenericArray<double[]>
         super(name, double[].class, defaultValue, defaultListener);
     }
     
+    /**
+     * Parses the specified list of whitespace-separated values directly into a native array,
+     * without intermediate strings or boxed values (see {@link NumberArrayParser})
+     */
+    @Override
+    public double[] parse(String input)
+    {
+        return NumberArrayParser.parseDoubles(input);
+    }
+    
     @Override
     public Object parseComponent(String s)
     {
@@ -43,12 +61,9 @@ public class VarDoubleArrayNative extends VarGenericArray<double[]>
     {
         // handle the case where the reference is not an array
         
-        @SuppressWarnings("rawtypes")
-        Var reference = getReference();
-        
-        if (reference == null) return super.getValue(forbidNull);
+        if (getReference() == null) return super.getValue(forbidNull);
         
-        Object value = reference.getValue();
+        Object value = getReadSource().getValue();
         
         if (value == null) return super.getValue(forbidNull);
         
@@ -56,4 +71,66 @@ public class VarDoubleArrayNative extends VarGenericArray<double[]>
         
         return (double[]) value;
     }
+    
+    @Override
+    protected double[] convertReferencedValue(Object value)
+    {
+        if (value instanceof Number) return new double[] { ((Number) value).doubleValue() };
+        
+        return (double[]) value;
+    }
+    
+    /**
+     * @return a sequential stream over the current value of this variable (the array is not
+     *         copied, and should not be modified while the stream is in use). Use
+     *         {@link DoubleStream#parallel()} to process it in parallel
+     */
+    public DoubleStream doubleStream()
+    {
+        return Arrays.stream(getValue());
+    }
+    
+    /**
+     * @return a {@link Spliterator#SIZED sized} spliterator over the current value of this
+     *         variable (the array is not copied)
+     */
+    public Spliterator.OfDouble spliterator()
+    {
+        return Arrays.spliterator(getValue());
+    }
+    
+    /**
+     * Applies the specified action to each element of the current value of this variable, in
+     * parallel (see {@link ArrayStreams#forEachParallel(double[], DoubleConsumer)})
+     * 
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         calling thread was interrupted in the meantime (e.g. by the default
+     *         {@link plugins.adufour.ezplug.EzPlug#stopExecution() stop mechanism} of EzPlugs)
+     */
+    public boolean forEachParallel(DoubleConsumer action)
+    {
+        return ArrayStreams.forEachParallel(getValue(), action);
+    }
+    
+    /**
+     * Applies the specified action to each element of the current value of this variable, in
+     * parallel (see
+     * {@link ArrayStreams#forEachParallel(double[], DoubleConsumer, BooleanSupplier)})
+     * 
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @param cancelled
+     *            the cancellation condition, checked regularly (and concurrently) while the
+     *            elements are processed
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         processing was cancelled in the meantime
+     */
+    public boolean forEachParallel(DoubleConsumer action, BooleanSupplier cancelled)
+    {
+        return ArrayStreams.forEachParallel(getValue(), action, cancelled);
+    }
 }
@@ -0,0 +1,485 @@
+package plugins.adufour.vars.lang;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.function.Consumer;
+
+import plugins.adufour.vars.util.DirectBuffers;
+import plugins.adufour.vars.util.VarException;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Variable holding a (potentially very large) array of doubles in native memory, outside of the
+ * Java heap, in order to spare the garbage collector. The data is accessed directly via
+ * {@link #getBuffer()}, which returns a view of the native memory (no copy is made). When linked
+ * together, off-heap variables share the same native memory: {@link #getBuffer()} returns a view of
+ * the memory of the source variable.<br/>
+ * <br/>
+ * Since this class extends {@link VarDoubleArrayNative}, it remains compatible with code relying
+ * on {@link #getValue()}, which returns a copy of the data on the heap. This copy is only created
+ * on request (and cached until the data changes), hence callers should prefer
+ * {@link #getBuffer()} to read the data without copying it.<br/>
+ * <br/>
+ * Native memory hardly weighs on the Java heap, hence the garbage collector may reclaim it long
+ * after it was last used. Calling {@link #release()} once the data is no longer needed frees it
+ * immediately, provided it was only accessed via {@link #accessBuffer(Consumer)} (memory handed
+ * out via {@link #getBuffer()} is left to the garbage collector, since the buffer may still be in
+ * use). Data written directly into the buffer should be followed by a call to
+ * {@link #contentsChanged()} to notify the listeners.
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarDoubleArrayOffHeap extends VarDoubleArrayNative
+{
+    /**
+     * Placeholder for the new value of events, replaced by a copy of the data only when (and if)
+     * the event is eventually fired
+     */
+    private static final double[] PENDING_COPY = new double[] { Double.NaN };
+    
+    private final Object lock = new Object();
+    
+    /**
+     * The native memory (or <code>null</code> if this variable is empty), guarded by {@link #lock}
+     */
+    private Memory memory;
+    
+    /**
+     * Copy of the data on the heap, or <code>null</code> if it is outdated (guarded by
+     * {@link #lock})
+     */
+    private double[] heapCopy;
+    
+    /**
+     * The last heap copy handed out, even if outdated. It is reported to the listeners as the old
+     * value of the variable (guarded by {@link #lock})
+     */
+    private double[] published;
+    
+    /**
+     * Creates a new empty off-heap variable
+     * 
+     * @param name
+     *            the variable name
+     */
+    public VarDoubleArrayOffHeap(String name)
+    {
+        this(name, 0, null);
+    }
+    
+    /**
+     * Creates a new off-heap variable
+     * 
+     * @param name
+     *            the variable name
+     * @param length
+     *            the number of (zero-filled) elements to allocate
+     * @param defaultListener
+     *            A listener to add to this variable immediately after creation
+     * @throws OutOfMemoryError
+     *             if the native memory is exhausted
+     */
+    public VarDoubleArrayOffHeap(String name, int length, VarListener<double[]> defaultListener) throws OutOfMemoryError
+    {
+        super(name, null, defaultListener);
+        
+        synchronized (lock)
+        {
+            allocateLocal(length);
+        }
+    }
+    
+    /**
+     * Replaces the data of this variable by a new zero-filled array of the specified length, and
+     * notifies the listeners. The previous data is freed as in {@link #release()}
+     * 
+     * @param length
+     *            the number of elements to allocate
+     * @throws OutOfMemoryError
+     *             if the native memory is exhausted
+     */
+    public void allocate(int length) throws OutOfMemoryError
+    {
+        if (!checkLocal()) return;
+        
+        double[] oldValue;
+        
+        synchronized (lock)
+        {
+            allocateLocal(length);
+            oldValue = published;
+        }
+        
+        changed(oldValue);
+    }
+    
+    /**
+     * Empties this variable, frees its native memory and notifies the listeners. If a task is
+     * accessing the memory (see {@link #accessBuffer(Consumer)}), the memory is freed once the
+     * last of these tasks returns. If a buffer was obtained via {@link #getBuffer()} (from this
+     * variable or any variable linked to it) since the memory was allocated, that buffer may still
+     * be in use, hence the memory is left to the garbage collector, which frees it once the buffer
+     * is no longer referenced (as is the case if the running JVM cannot free memory explicitly,
+     * see {@link DirectBuffers#free(ByteBuffer)}).
+     */
+    public void release()
+    {
+        double[] oldValue;
+        
+        synchronized (lock)
+        {
+            if (memory == null) return;
+            
+            retire(memory);
+            memory = null;
+            heapCopy = null;
+            oldValue = published;
+        }
+        
+        changed(oldValue);
+    }
+    
+    /**
+     * Notifies the listeners that the data has been modified via {@link #getBuffer()} or
+     * {@link #accessBuffer(Consumer)}. Since listeners receive the data as an array on the heap,
+     * the data is copied if this variable (or a variable linked to it) has listeners: once per
+     * call if they are notified synchronously, or once per delivery if they are notified
+     * asynchronously (see {@link #setDispatchMode(plugins.adufour.vars.util.VarDispatchMode)}), in
+     * which case pending changes are notified at once.
+     */
+    public void contentsChanged()
+    {
+        double[] oldValue;
+        
+        synchronized (lock)
+        {
+            heapCopy = null;
+            oldValue = published;
+        }
+        
+        changed(oldValue);
+    }
+    
+    /**
+     * @return a view of the data held by this variable, or by the source variable if this variable
+     *         is linked to another one. The view shares the native memory of the variable (and has
+     *         its own position and limit). If the source variable is not an off-heap variable, the
+     *         view wraps its current value. The returned buffer remains valid after the variable
+     *         is {@link #release() released} (but no longer reflects its data), hence the memory
+     *         of the variable is then left to the garbage collector. Prefer
+     *         {@link #accessBuffer(Consumer)} to let the memory be freed upon release.
+     * @see #accessBuffer(Consumer)
+     */
+    public DoubleBuffer getBuffer()
+    {
+        Var<? extends double[]> source = getSource();
+        
+        if (source instanceof VarDoubleArrayOffHeap) return ((VarDoubleArrayOffHeap) source).getLocalBuffer();
+        
+        return DoubleBuffer.wrap(getValue());
+    }
+    
+    /**
+     * Runs the specified task on a view of the data held by this variable (or by the source
+     * variable, see {@link #getBuffer()}). The memory is not freed while the task is running, even
+     * if the variable is {@link #release() released} in the meantime, but it may be freed as soon
+     * as the task returns, hence the buffer <b>must not</b> be used afterwards.
+     * 
+     * @param task
+     *            the task reading or writing the data
+     */
+    public void accessBuffer(Consumer<DoubleBuffer> task)
+    {
+        Var<? extends double[]> source = getSource();
+        
+        if (source instanceof VarDoubleArrayOffHeap)
+        {
+            ((VarDoubleArrayOffHeap) source).accessLocalBuffer(task);
+        }
+        else
+        {
+            task.accept(DoubleBuffer.wrap(getValue()));
+        }
+    }
+    
+    /**
+     * @return the number of elements of this variable (or of the variable it is linked to). This
+     *         method does not copy the data
+     */
+    public int getLength()
+    {
+        Var<? extends double[]> source = getSource();
+        
+        if (source instanceof VarDoubleArrayOffHeap) return ((VarDoubleArrayOffHeap) source).getLocalLength();
+        
+        return getValue().length;
+    }
+    
+    /**
+     * @return a copy of the data on the heap (or the value of the referenced variable). The copy is
+     *         created on demand and shared until the data changes, hence it <b>must not</b> be
+     *         modified
+     */
+    @Override
+    public double[] getValue(boolean forbidNull) throws VarException
+    {
+        if (getReference() != null) return super.getValue(forbidNull);
+        
+        return getLocalValue();
+    }
+    
+    /**
+     * Copies the specified array into native memory, and notifies the listeners
+     * 
+     * @param newValue
+     *            the new data (or <code>null</code> to empty this variable)
+     */
+    @Override
+    public void setValue(double[] newValue)
+    {
+        if (!checkLocal()) return;
+        
+        double[] oldValue;
+        
+        synchronized (lock)
+        {
+            oldValue = published;
+            storeLocal(newValue);
+        }
+        
+        changed(oldValue);
+    }
+    
+    @Override
+    protected double[] getLocalValue()
+    {
+        synchronized (lock)
+        {
+            if (heapCopy == null)
+            {
+                heapCopy = new double[getLocalLength()];
+                if (memory != null) memory.doubles.duplicate().get(heapCopy);
+                published = heapCopy;
+            }
+            
+            return heapCopy;
+        }
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(double[] currentValue, double[] newValue)
+    {
+        synchronized (lock)
+        {
+            if (heapCopy != currentValue) return false;
+            
+            storeLocal(newValue);
+            return true;
+        }
+    }
+    
+    @Override
+    protected void fireVariableChanged(double[] oldValue, double[] newValue)
+    {
+        // the heap copy is only created when an event is actually fired, and for asynchronous
+        // listeners when they are notified (see resolveDeferredValue())
+        if (newValue == PENDING_COPY && !isBatchUpdating() && getDispatcher() == null)
+        {
+            newValue = getLocalValue();
+            
+            if (newValue == oldValue) return;
+        }
+        
+        super.fireVariableChanged(oldValue, newValue);
+    }
+    
+    /**
+     * Values of this variable are copies of its native memory, taken only when the data changes,
+     * hence they are compared by identity (comparing their contents would be as costly as the
+     * copy itself)
+     */
+    @Override
+    protected boolean valueEquals(Object a, Object b)
+    {
+        // the placeholder never equals an actual value (even one holding the same data)
+        if (a == PENDING_COPY || b == PENDING_COPY) return false;
+        
+        return a == b;
+    }
+    
+    @Override
+    boolean isDeferredValue(Object value)
+    {
+        return value == PENDING_COPY;
+    }
+    
+    @Override
+    double[] resolveDeferredValue(double[] value)
+    {
+        return value == PENDING_COPY ? getLocalValue() : value;
+    }
+    
+    private DoubleBuffer getLocalBuffer()
+    {
+        synchronized (lock)
+        {
+            if (memory == null) return DoubleBuffer.wrap(new double[0]);
+            
+            memory.exposed = true;
+            return memory.doubles.duplicate();
+        }
+    }
+    
+    private void accessLocalBuffer(Consumer<DoubleBuffer> task)
+    {
+        Memory leased;
+        DoubleBuffer view;
+        
+        synchronized (lock)
+        {
+            leased = memory;
+            
+            if (leased == null)
+            {
+                view = DoubleBuffer.wrap(new double[0]);
+            }
+            else
+            {
+                leased.leases++;
+                view = leased.doubles.duplicate();
+            }
+        }
+        
+        try
+        {
+            task.accept(view);
+        }
+        finally
+        {
+            if (leased != null) synchronized (lock)
+            {
+                leased.leases--;
+                freeIfUnused(leased);
+            }
+        }
+    }
+    
+    private int getLocalLength()
+    {
+        synchronized (lock)
+        {
+            return memory == null ? 0 : memory.doubles.capacity();
+        }
+    }
+    
+    /**
+     * Allocates new native memory, and frees the previous one if possible (must be called while
+     * holding {@link #lock})
+     */
+    private void allocateLocal(int length)
+    {
+        Memory previous = memory;
+        
+        memory = length == 0 ? null : new Memory(length);
+        heapCopy = null;
+        
+        if (previous != null) retire(previous);
+    }
+    
+    /**
+     * Marks the specified memory as no longer used by this variable, and frees it if possible (must
+     * be called while holding {@link #lock})
+     */
+    private static void retire(Memory retired)
+    {
+        retired.retired = true;
+        freeIfUnused(retired);
+    }
+    
+    /**
+     * Frees the specified memory if it is no longer used by its variable nor by any task, and was
+     * never handed out via {@link #getBuffer()} (must be called while holding {@link #lock})
+     */
+    private static void freeIfUnused(Memory memory)
+    {
+        if (memory.retired && memory.leases == 0 && !memory.exposed) DirectBuffers.free(memory.bytes);
+    }
+    
+    /**
+     * Copies the specified array into native memory, reusing the current memory if it has the
+     * right size (must be called while holding {@link #lock})
+     */
+    private void storeLocal(double[] newValue)
+    {
+        int length = newValue == null ? 0 : newValue.length;
+        
+        if (length != getLocalLength()) allocateLocal(length);
+        
+        if (length > 0) memory.doubles.duplicate().put(newValue);
+        
+        // the array now belongs to this variable (as in any other variable)
+        heapCopy = published = newValue;
+    }
+    
+    private void changed(double[] oldValue)
+    {
+        updateVersion();
+        
+        // copying the data is only necessary if someone is listening (directly or via a link)
+        if (isBatchUpdating() || isObserved(this)) fireVariableChanged(oldValue, PENDING_COPY);
+    }
+    
+    private static boolean isObserved(Var<?> variable)
+    {
+        for (Object listener : variable.listenerList.getListeners())
+        {
+            // referrers only need the data if they are observed themselves
+            if (!(listener instanceof Var) || ((Var<?>) listener).getReference() != variable) return true;
+            
+            if (isObserved((Var<?>) listener)) return true;
+        }
+        
+        return false;
+    }
+    
+    private boolean checkLocal()
+    {
+        if (getReference() == null) return true;
+        
+        System.err.println("Warning: cannot modify \"" + getName() + "\": it is pointing to another variable");
+        return false;
+    }
+    
+    /**
+     * A block of native memory, freed when it is no longer used
+     */
+    private static final class Memory
+    {
+        final ByteBuffer bytes;
+        
+        final DoubleBuffer doubles;
+        
+        /**
+         * The number of tasks currently accessing the memory (guarded by the lock of the variable)
+         */
+        int leases = 0;
+        
+        /**
+         * Whether a view of the memory was handed out via {@link VarDoubleArrayOffHeap#getBuffer()}
+         * (guarded by the lock of the variable)
+         */
+        boolean exposed = false;
+        
+        /**
+         * Whether the memory was replaced or released by the variable (guarded by the lock of the
+         * variable)
+         */
+        boolean retired = false;
+        
+        Memory(int length) throws OutOfMemoryError
+        {
+            bytes = DirectBuffers.allocate(length * 8L);
+            doubles = bytes.asDoubleBuffer();
+        }
+    }
+}
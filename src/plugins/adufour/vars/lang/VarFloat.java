@@ -1,9 +1,33 @@
 package plugins.adufour.vars.lang;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import plugins.adufour.vars.util.FloatVarListener;
+import plugins.adufour.vars.util.ListenerList;
+import plugins.adufour.vars.util.VarException;
 import plugins.adufour.vars.util.VarListener;
 
+/**
+ * Variable holding a single-precision floating-point value. The value is stored as a primitive
+ * float, and can be read or written without boxing via the {@link #getFloat()} and
+ * {@link #setFloat(float)} methods. Listeners implementing the {@link FloatVarListener} interface
+ * are notified without boxing as well, as long as no regular {@link VarListener} is registered (or
+ * a batch update is running).
+ * 
+ * @author Alexandre Dufour
+ */
 public class VarFloat extends VarNumber<Float>
 {
+    /**
+     * The local value of this variable, stored as raw bits (see
+     * {@link Float#floatToRawIntBits(float)}) to allow atomic updates
+     */
+    private volatile int bits;
+    
+    private static final AtomicIntegerFieldUpdater<VarFloat> bitsUpdater = AtomicIntegerFieldUpdater.newUpdater(VarFloat.class, "bits");
+    
+    private final ListenerList<FloatVarListener> floatListeners = new ListenerList<FloatVarListener>(FloatVarListener.class);
+    
     /**
      * @deprecated use {@link #VarFloat(String, float)} instead
      * @param name
@@ -35,6 +59,37 @@ public class VarFloat extends VarNumber<Float>
     public VarFloat(String name, float defaultValue, VarListener<Float> defaultListener)
     {
         super(name, Float.TYPE, defaultValue, defaultListener);
+        
+        this.bits = Float.floatToRawIntBits(defaultValue);
+    }
+    
+    /**
+     * Adds the specified primitive listener to the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to register
+     */
+    public void addListener(FloatVarListener listener)
+    {
+        floatListeners.add(listener);
+    }
+    
+    /**
+     * Removes the specified primitive listener from the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeListener(FloatVarListener listener)
+    {
+        floatListeners.remove(listener);
+    }
+    
+    @Override
+    public void removeListeners()
+    {
+        super.removeListeners();
+        floatListeners.clear();
     }
     
 	@Override
@@ -46,7 +101,7 @@ public class VarFloat extends VarNumber<Float>
 	@Override
 	public int compareTo(Float f)
 	{
-		return getValue().compareTo(f);
+		return Float.compare(getFloat(), f);
 	}
 	
 	@Override
@@ -62,8 +117,117 @@ public class VarFloat extends VarNumber<Float>
 	 */
 	public Float getValue(boolean forbidNull)
 	{
+	    if (getReference() == null) return Float.intBitsToFloat(bits);
+	    
 		Number number = super.getValue(forbidNull);
     	
     	return number == null ? null : number.floatValue();
 	}
+    
+    @Override
+    protected Float convertReferencedValue(Object value)
+    {
+        return value == null ? null : ((Number) value).floatValue();
+    }
+    
+    /**
+     * @return the value of this variable (or that of the referenced variable, if any) as a
+     *         primitive float
+     * @throws VarException
+     *             if the referenced variable has no value
+     */
+    public float getFloat() throws VarException
+    {
+        if (getReference() == null) return Float.intBitsToFloat(bits);
+        
+        Var<?> source = getReadSource();
+        
+        if (source instanceof VarFloat) return ((VarFloat) source).getFloat();
+        
+        Object referencedValue = source.getValue();
+        
+        if (referencedValue == null) throw new VarException(this, "No value specified");
+        
+        return ((Number) referencedValue).floatValue();
+    }
+    
+    /**
+     * Sets the value of this variable (see {@link #setFloat(float)}). Since this variable
+     * cannot hold a <code>null</code> value, a <code>null</code> argument resets the variable to
+     * its default value
+     */
+    @Override
+    public void setValue(Float newValue) throws IllegalArgumentException
+    {
+        setFloat(newValue == null ? getDefaultValue() : newValue);
+    }
+    
+    /**
+     * Sets the value of this variable and notify the listeners, without boxing. This method can
+     * only be called if this variable is not referencing another one.
+     * 
+     * @param newValue
+     *            the new value
+     */
+    public void setFloat(float newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return;
+        }
+        
+        float oldValue = Float.intBitsToFloat(bitsUpdater.getAndSet(this, Float.floatToRawIntBits(newValue)));
+        
+        // same semantics as Float.equals() (i.e. NaN equals NaN, but 0f does not equal -0f)
+        if (Float.floatToIntBits(oldValue) == Float.floatToIntBits(newValue)) return;
+        
+        updateVersion();
+        
+        fireVariableChanged(oldValue, newValue);
+    }
+    
+    @Override
+    protected Float getLocalValue()
+    {
+        return Float.intBitsToFloat(bits);
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(Float currentValue, Float newValue)
+    {
+        float update = newValue == null ? getDefaultValue() : newValue;
+        return bitsUpdater.compareAndSet(this, Float.floatToRawIntBits(currentValue), Float.floatToRawIntBits(update));
+    }
+    
+    /**
+     * Notifies the listeners of a value change. Values are only boxed if regular
+     * {@link VarListener}s are registered, or if a batch update is running
+     * 
+     * @param oldValue
+     *            the old variable value
+     * @param newValue
+     *            the new variable value
+     */
+    protected void fireVariableChanged(float oldValue, float newValue)
+    {
+        if (!listenerList.isEmpty() || isReferenced() || isBatchUpdating())
+        {
+            fireVariableChanged(Float.valueOf(oldValue), Float.valueOf(newValue));
+            return;
+        }
+        
+        for (FloatVarListener l : floatListeners.getListeners())
+            l.valueChanged(this, oldValue, newValue);
+    }
+    
+    @Override
+    protected void fireTypedListeners(Object oldValue, Object newValue)
+    {
+        float oldFloat = oldValue == null ? Float.NaN : ((Number) oldValue).floatValue();
+        float newFloat = newValue == null ? Float.NaN : ((Number) newValue).floatValue();
+        
+        for (FloatVarListener l : floatListeners.getListeners())
+            l.valueChanged(this, oldFloat, newFloat);
+    }
 }
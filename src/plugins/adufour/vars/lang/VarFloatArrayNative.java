@@ -1,5 +1,12 @@
 package plugins.adufour.vars.lang;
 
+import java.util.Spliterator;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+
+import plugins.adufour.vars.util.ArrayStreams;
+import plugins.adufour.vars.util.NumberArrayParser;
 import plugins.adufour.vars.util.VarListener;
 
 /**
@@ -30,6 +37,16 @@ public class VarFloatArrayNative extends VarGenericArray<float[]>
         super(name, float[].class, defaultValue, defaultListener);
     }
     
+    /**
+     * Parses the specified list of whitespace-separated values directly into a native array,
+     * without intermediate strings or boxed values (see {@link NumberArrayParser})
+     */
+    @Override
+    public float[] parse(String input)
+    {
+        return NumberArrayParser.parseFloats(input);
+    }
+    
     @Override
     public Object parseComponent(String s)
     {
@@ -41,12 +58,9 @@ public class VarFloatArrayNative extends VarGenericArray<float[]>
     {
         // handle the case where the reference is not an array
         
-        @SuppressWarnings("rawtypes")
-        Var reference = getReference();
+        if (getReference() == null) return super.getValue(forbidNull);
         
-        if (reference == null) return super.getValue(forbidNull);
-        
-        Object value = reference.getValue();
+        Object value = getReadSource().getValue();
         
         if (value == null) return super.getValue(forbidNull);
         
@@ -54,4 +68,68 @@ public class VarFloatArrayNative extends VarGenericArray<float[]>
         
         return (float[]) value;
     }
+    
+    @Override
+    protected float[] convertReferencedValue(Object value)
+    {
+        if (value instanceof Number) return new float[] { ((Number) value).floatValue() };
+        
+        return (float[]) value;
+    }
+    
+    /**
+     * @return a sequential stream over the current value of this variable, whose elements are
+     *         widened to <code>double</code> (the array is not copied, and should not be modified
+     *         while the stream is in use). Use {@link DoubleStream#parallel()} to process it in
+     *         parallel
+     */
+    public DoubleStream doubleStream()
+    {
+        return ArrayStreams.stream(getValue(), false);
+    }
+    
+    /**
+     * @return a {@link Spliterator#SIZED sized} spliterator over the current value of this
+     *         variable (the array is not copied), whose elements are widened to <code>double</code>
+     */
+    public Spliterator.OfDouble spliterator()
+    {
+        return ArrayStreams.spliterator(getValue());
+    }
+    
+    /**
+     * Applies the specified action to each element of the current value of this variable (widened
+     * to <code>double</code>), in parallel (see
+     * {@link ArrayStreams#forEachParallel(float[], DoubleConsumer)})
+     * 
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         calling thread was interrupted in the meantime (e.g. by the default
+     *         {@link plugins.adufour.ezplug.EzPlug#stopExecution() stop mechanism} of EzPlugs)
+     */
+    public boolean forEachParallel(DoubleConsumer action)
+    {
+        return ArrayStreams.forEachParallel(getValue(), action);
+    }
+    
+    /**
+     * Applies the specified action to each element of the current value of this variable (widened
+     * to <code>double</code>), in parallel (see
+     * {@link ArrayStreams#forEachParallel(float[], DoubleConsumer, BooleanSupplier)})
+     * 
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @param cancelled
+     *            the cancellation condition, checked regularly (and concurrently) while the
+     *            elements are processed
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         processing was cancelled in the meantime
+     */
+    public boolean forEachParallel(DoubleConsumer action, BooleanSupplier cancelled)
+    {
+        return ArrayStreams.forEachParallel(getValue(), action, cancelled);
+    }
 }
@@ -1,9 +1,33 @@
 package plugins.adufour.vars.lang;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import plugins.adufour.vars.util.IntegerVarListener;
+import plugins.adufour.vars.util.ListenerList;
+import plugins.adufour.vars.util.VarException;
 import plugins.adufour.vars.util.VarListener;
 
+/**
+ * Variable holding an integer value. The value is stored as a primitive int, and can be read or
+ * written without boxing via the {@link #getInt()} and {@link #setInt(int)} methods. Listeners
+ * implementing the {@link IntegerVarListener} interface are notified without boxing as well, as
+ * long as no regular {@link VarListener} is registered (or a batch update is running).<br/>
+ * The value may be updated concurrently by several threads via the lock-free
+ * {@link #compareAndSet(int, int)} and {@link #getAndAdd(int)} methods.
+ * 
+ * @author Alexandre Dufour
+ */
 public class VarInteger extends VarNumber<Integer>
 {
+    /**
+     * The local value of this variable
+     */
+    private volatile int value;
+    
+    private static final AtomicIntegerFieldUpdater<VarInteger> valueUpdater = AtomicIntegerFieldUpdater.newUpdater(VarInteger.class, "value");
+    
+    private final ListenerList<IntegerVarListener> intListeners = new ListenerList<IntegerVarListener>(IntegerVarListener.class);
+    
     /**
      * @deprecated use {@link #VarInteger(String, int)} instead
      * @param name
@@ -33,6 +57,37 @@ public class VarInteger extends VarNumber<Integer>
     public VarInteger(String name, int defaultValue, VarListener<Integer> defaultListener)
     {
         super(name, Integer.TYPE, defaultValue, defaultListener);
+        
+        this.value = defaultValue;
+    }
+    
+    /**
+     * Adds the specified primitive listener to the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to register
+     */
+    public void addListener(IntegerVarListener listener)
+    {
+        intListeners.add(listener);
+    }
+    
+    /**
+     * Removes the specified primitive listener from the list of registered listeners
+     * 
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeListener(IntegerVarListener listener)
+    {
+        intListeners.remove(listener);
+    }
+    
+    @Override
+    public void removeListeners()
+    {
+        super.removeListeners();
+        intListeners.clear();
     }
     
     @Override
@@ -44,7 +99,7 @@ public class VarInteger extends VarNumber<Integer>
     @Override
     public int compareTo(Integer integer)
     {
-        return getValue().compareTo(integer);
+        return Integer.compare(getInt(), integer);
     }
     
     @Override
@@ -60,8 +115,188 @@ public class VarInteger extends VarNumber<Integer>
      */
     public Integer getValue(boolean forbidNull)
     {
+        if (getReference() == null) return value;
+        
         Number number = super.getValue(forbidNull);
         
         return number == null ? null : number.intValue();
     }
+    
+    @Override
+    protected Integer convertReferencedValue(Object value)
+    {
+        return value == null ? null : ((Number) value).intValue();
+    }
+    
+    /**
+     * @return the value of this variable (or that of the referenced variable, if any) as a
+     *         primitive int
+     * @throws VarException
+     *             if the referenced variable has no value
+     */
+    public int getInt() throws VarException
+    {
+        if (getReference() == null) return value;
+        
+        Var<?> source = getReadSource();
+        
+        if (source instanceof VarInteger) return ((VarInteger) source).getInt();
+        
+        Object referencedValue = source.getValue();
+        
+        if (referencedValue == null) throw new VarException(this, "No value specified");
+        
+        return ((Number) referencedValue).intValue();
+    }
+    
+    /**
+     * Sets the value of this variable (see {@link #setInt(int)}). Since this variable
+     * cannot hold a <code>null</code> value, a <code>null</code> argument resets the variable to
+     * its default value
+     */
+    @Override
+    public void setValue(Integer newValue) throws IllegalArgumentException
+    {
+        setInt(newValue == null ? getDefaultValue() : newValue);
+    }
+    
+    /**
+     * Sets the value of this variable and notify the listeners, without boxing. This method can
+     * only be called if this variable is not referencing another one.
+     * 
+     * @param newValue
+     *            the new value
+     */
+    public void setInt(int newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return;
+        }
+        
+        int oldValue = valueUpdater.getAndSet(this, newValue);
+        
+        if (oldValue == newValue) return;
+        
+        updateVersion();
+        
+        fireVariableChanged(oldValue, newValue);
+    }
+    
+    /**
+     * Atomically sets the value of this variable to the specified value if the current value
+     * equals the expected value, and notifies the listeners if the value has changed. This method
+     * has no effect if this variable references another one.
+     * 
+     * @param expectedValue
+     *            the expected current value
+     * @param newValue
+     *            the new value
+     * @return <code>true</code> if the current value was equal to the expected value (and has been
+     *         replaced), <code>false</code> otherwise
+     */
+    public boolean compareAndSet(int expectedValue, int newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return false;
+        }
+        
+        if (expectedValue == newValue) return value == expectedValue;
+        
+        if (!valueUpdater.compareAndSet(this, expectedValue, newValue)) return false;
+        
+        updateVersion();
+        
+        fireVariableChanged(expectedValue, newValue);
+        
+        return true;
+    }
+    
+    /**
+     * Atomically adds the specified amount to the value of this variable, and notifies the
+     * listeners. This method has no effect if this variable references another one.
+     * 
+     * @param delta
+     *            the amount to add
+     * @return the value of this variable before the addition
+     */
+    public int getAndAdd(int delta)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return getInt();
+        }
+        
+        if (delta == 0) return value;
+        
+        int oldValue = valueUpdater.getAndAdd(this, delta);
+        
+        updateVersion();
+        
+        fireVariableChanged(oldValue, oldValue + delta);
+        
+        return oldValue;
+    }
+    
+    /**
+     * Atomically adds the specified amount to the value of this variable, and notifies the
+     * listeners. This method has no effect if this variable references another one.
+     * 
+     * @param delta
+     *            the amount to add
+     * @return the value of this variable after the addition
+     */
+    public int addAndGet(int delta)
+    {
+        if (getReference() != null) return getAndAdd(delta);
+        
+        return getAndAdd(delta) + delta;
+    }
+    
+    @Override
+    protected Integer getLocalValue()
+    {
+        return value;
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(Integer currentValue, Integer newValue)
+    {
+        return valueUpdater.compareAndSet(this, currentValue, newValue == null ? getDefaultValue() : newValue);
+    }
+    
+    /**
+     * Notifies the listeners of a value change. Values are only boxed if regular
+     * {@link VarListener}s are registered, or if a batch update is running
+     * 
+     * @param oldValue
+     *            the old variable value
+     * @param newValue
+     *            the new variable value
+     */
+    protected void fireVariableChanged(int oldValue, int newValue)
+    {
+        if (!listenerList.isEmpty() || isReferenced() || isBatchUpdating())
+        {
+            fireVariableChanged(Integer.valueOf(oldValue), Integer.valueOf(newValue));
+            return;
+        }
+        
+        for (IntegerVarListener l : intListeners.getListeners())
+            l.valueChanged(this, oldValue, newValue);
+    }
+    
+    @Override
+    protected void fireTypedListeners(Object oldValue, Object newValue)
+    {
+        int oldInteger = oldValue == null ? 0 : ((Number) oldValue).intValue();
+        int newInteger = newValue == null ? 0 : ((Number) newValue).intValue();
+        
+        for (IntegerVarListener l : intListeners.getListeners())
+            l.valueChanged(this, oldInteger, newInteger);
+    }
 }
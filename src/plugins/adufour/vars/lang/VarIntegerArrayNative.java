@@ -1,5 +1,13 @@
 package plugins.adufour.vars.lang;
 
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import plugins.adufour.vars.util.ArrayStreams;
+import plugins.adufour.vars.util.NumberArrayParser;
 import plugins.adufour.vars.util.VarListener;
 
 /**
@@ -30,6 +38,16 @@ public class VarIntegerArrayNative extends VarGenericArray<int[]>
         super(name, int[].class, defaultValue, defaultListener);
     }
     
+    /**
+     * Parses the specified list of whitespace-separated values directly into a native array,
+     * without intermediate strings or boxed values (see {@link NumberArrayParser})
+     */
+    @Override
+    public int[] parse(String input)
+    {
+        return NumberArrayParser.parseInts(input);
+    }
+    
     @Override
     public Object parseComponent(String s)
     {
@@ -41,12 +59,9 @@ public class VarIntegerArrayNative extends VarGenericArray<int[]>
     {
         // handle the case where the reference is not an array
         
-        @SuppressWarnings("rawtypes")
-        Var reference = getReference();
+        if (getReference() == null) return super.getValue(forbidNull);
         
-        if (reference == null) return super.getValue(forbidNull);
-        
-        Object value = reference.getValue();
+        Object value = getReadSource().getValue();
         
         if (value == null) return super.getValue(forbidNull);
         
@@ -54,4 +69,65 @@ public class VarIntegerArrayNative extends VarGenericArray<int[]>
         
         return (int[]) value;
     }
+    
+    @Override
+    protected int[] convertReferencedValue(Object value)
+    {
+        if (value instanceof Number) return new int[] { ((Number) value).intValue() };
+        
+        return (int[]) value;
+    }
+    
+    /**
+     * @return a sequential stream over the current value of this variable (the array is not
+     *         copied, and should not be modified while the stream is in use). Use
+     *         {@link IntStream#parallel()} to process it in parallel
+     */
+    public IntStream intStream()
+    {
+        return Arrays.stream(getValue());
+    }
+    
+    /**
+     * @return a {@link Spliterator#SIZED sized} spliterator over the current value of this
+     *         variable (the array is not copied)
+     */
+    public Spliterator.OfInt spliterator()
+    {
+        return Arrays.spliterator(getValue());
+    }
+    
+    /**
+     * Applies the specified action to each element of the current value of this variable, in
+     * parallel (see {@link ArrayStreams#forEachParallel(int[], IntConsumer)})
+     * 
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         calling thread was interrupted in the meantime (e.g. by the default
+     *         {@link plugins.adufour.ezplug.EzPlug#stopExecution() stop mechanism} of EzPlugs)
+     */
+    public boolean forEachParallel(IntConsumer action)
+    {
+        return ArrayStreams.forEachParallel(getValue(), action);
+    }
+    
+    /**
+     * Applies the specified action to each element of the current value of this variable, in
+     * parallel (see {@link ArrayStreams#forEachParallel(int[], IntConsumer, BooleanSupplier)})
+     * 
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @param cancelled
+     *            the cancellation condition, checked regularly (and concurrently) while the
+     *            elements are processed
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         processing was cancelled in the meantime
+     */
+    public boolean forEachParallel(IntConsumer action, BooleanSupplier cancelled)
+    {
+        return ArrayStreams.forEachParallel(getValue(), action, cancelled);
+    }
 }
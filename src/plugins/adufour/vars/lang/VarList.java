@@ -0,0 +1,363 @@
+package plugins.adufour.vars.lang;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.UnaryOperator;
+
+import plugins.adufour.vars.util.VarException;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Array variable backed by a growable list, designed to collect large numbers of elements (e.g.
+ * detections) one at a time. Contrary to {@link VarArray#add(Object...)}, appending elements does
+ * not copy the current contents (appends run in amortized constant time), and the array returned
+ * by {@link #getValue()} is only created when it is requested, as a snapshot of the list contents
+ * at that time. Since this variable holds a value of type <code>T[]</code>, it can be linked with
+ * any other variable of the same array type (e.g. {@link VarROIArray}).<br/>
+ * <br/>
+ * Each call to {@link #add(Object)}, {@link #addAll(Collection)} or {@link #clear()} notifies the
+ * listeners once (if the variable is being listened to or referenced), with a new snapshot of the
+ * list. Adding elements one by one to a list with synchronous listeners therefore copies the list
+ * each time. If the listeners are notified asynchronously (see
+ * {@link #setDispatchMode(plugins.adufour.vars.util.VarDispatchMode)}), the snapshot is only taken
+ * when they are notified, and consecutive changes still pending by then are notified once. To add
+ * elements one by one while notifying the listeners only once, wrap the calls in a batch:
+ * 
+ * <pre>
+ * Var.beginBatch();
+ * try
+ * {
+ *     for (ROI roi : detections)
+ *         list.add(roi);
+ * }
+ * finally
+ * {
+ *     Var.commitBatch();
+ * }
+ * </pre>
+ * 
+ * @author Alexandre Dufour
+ * @param <T>
+ *            the inner type of the array
+ */
+public class VarList<T> extends VarGenericArray<T[]> implements Iterable<T>
+{
+    /**
+     * Placeholder for the new value of deferred events, replaced by a snapshot of the list when
+     * the event is actually fired (i.e. once per batch) or delivered (i.e. once per asynchronous
+     * delivery)
+     */
+    private static final Object[] PENDING_SNAPSHOT = new Object[] { new Object() };
+    
+    private final ArrayList<T> elements = new ArrayList<T>();
+    
+    /**
+     * The last array handed out (via {@link #getValue()} or to the listeners), or
+     * <code>null</code> if the list has been modified since (guarded by {@link #elements})
+     */
+    private T[] snapshot;
+    
+    /**
+     * The last array handed out, even if outdated. It is reported to the listeners as the old value
+     * of the variable (guarded by {@link #elements})
+     */
+    private T[] published;
+    
+    /**
+     * Creates a new empty list variable
+     * 
+     * @param name
+     *            the variable name
+     * @param type
+     *            the data type of the array (including the <code>[]</code>)
+     */
+    public VarList(String name, Class<T[]> type)
+    {
+        this(name, type, null, null);
+    }
+    
+    /**
+     * Creates a new list variable
+     * 
+     * @param name
+     *            the variable name
+     * @param type
+     *            the data type of the array (including the <code>[]</code>)
+     * @param defaultValue
+     *            the initial elements (may be <code>null</code>)
+     * @param defaultListener
+     *            A listener to add to this variable immediately after creation
+     */
+    public VarList(String name, Class<T[]> type, T[] defaultValue, VarListener<T[]> defaultListener)
+    {
+        super(name, type, defaultValue, defaultListener);
+        
+        T[] initialValue = getDefaultValue();
+        elements.addAll(Arrays.asList(initialValue));
+        snapshot = published = initialValue;
+    }
+    
+    /**
+     * Appends the specified element at the end of this list
+     * 
+     * @param element
+     *            the element to add
+     */
+    public void add(T element)
+    {
+        if (!checkLocal()) return;
+        
+        T[] oldValue;
+        
+        synchronized (elements)
+        {
+            elements.add(element);
+            oldValue = invalidate();
+        }
+        
+        changed(oldValue);
+    }
+    
+    /**
+     * Appends all the specified elements at the end of this list, and notifies the listeners once
+     * 
+     * @param newElements
+     *            the elements to add
+     */
+    public void addAll(T... newElements)
+    {
+        addAll(Arrays.asList(newElements));
+    }
+    
+    /**
+     * Appends all the specified elements at the end of this list, and notifies the listeners once
+     * 
+     * @param newElements
+     *            the elements to add
+     */
+    public void addAll(Collection<? extends T> newElements)
+    {
+        if (newElements.isEmpty() || !checkLocal()) return;
+        
+        T[] oldValue;
+        
+        synchronized (elements)
+        {
+            elements.addAll(newElements);
+            oldValue = invalidate();
+        }
+        
+        changed(oldValue);
+    }
+    
+    /**
+     * Removes all the elements from this list
+     */
+    public void clear()
+    {
+        if (!checkLocal()) return;
+        
+        T[] oldValue;
+        
+        synchronized (elements)
+        {
+            if (elements.isEmpty()) return;
+            
+            elements.clear();
+            oldValue = invalidate();
+        }
+        
+        changed(oldValue);
+    }
+    
+    /**
+     * Ensures that this list can hold at least the specified number of elements without growing
+     * 
+     * @param capacity
+     *            the desired minimum capacity
+     */
+    public void ensureCapacity(int capacity)
+    {
+        synchronized (elements)
+        {
+            elements.ensureCapacity(capacity);
+        }
+    }
+    
+    /**
+     * @param index
+     *            the index of the element to return
+     * @return the element at the specified position in this list (or in the referenced variable)
+     * @throws IndexOutOfBoundsException
+     *             if the index is out of range
+     */
+    public T get(int index) throws IndexOutOfBoundsException
+    {
+        if (getReference() != null) return getValue()[index];
+        
+        synchronized (elements)
+        {
+            return elements.get(index);
+        }
+    }
+    
+    /**
+     * @return the number of elements in this list (or in the referenced variable). This method
+     *         does not create any snapshot
+     */
+    public int size()
+    {
+        if (getReference() != null) return getValue().length;
+        
+        synchronized (elements)
+        {
+            return elements.size();
+        }
+    }
+    
+    /**
+     * @return an iterator over a snapshot of the list contents
+     */
+    @Override
+    public Iterator<T> iterator()
+    {
+        return Arrays.asList(getValue()).iterator();
+    }
+    
+    /**
+     * @return a snapshot of the list contents (or the value of the referenced variable). The
+     *         snapshot is created on demand and shared until the list is modified, hence it
+     *         <b>must not</b> be modified
+     */
+    @Override
+    public T[] getValue(boolean forbidNull) throws VarException
+    {
+        if (getReference() != null) return super.getValue(forbidNull);
+        
+        return getLocalValue();
+    }
+    
+    /**
+     * Replaces the contents of this list with the specified elements
+     * 
+     * @param newValue
+     *            the new elements (or <code>null</code> to clear the list)
+     */
+    @Override
+    public void setValue(final T[] newValue)
+    {
+        getAndUpdate(new UnaryOperator<T[]>()
+        {
+            @Override
+            public T[] apply(T[] currentValue)
+            {
+                return newValue;
+            }
+        });
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T[] getLocalValue()
+    {
+        synchronized (elements)
+        {
+            if (snapshot == null)
+            {
+                snapshot = elements.toArray((T[]) Array.newInstance(getInnerType(), elements.size()));
+                published = snapshot;
+            }
+            
+            return snapshot;
+        }
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(T[] currentValue, T[] newValue)
+    {
+        synchronized (elements)
+        {
+            if (snapshot != currentValue) return false;
+            
+            elements.clear();
+            if (newValue != null) elements.addAll(Arrays.asList(newValue));
+            
+            // the new array now belongs to this variable (as in any other variable)
+            snapshot = published = newValue;
+            return true;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void fireVariableChanged(T[] oldValue, T[] newValue)
+    {
+        // deferred events only take a snapshot when they are eventually fired, and asynchronous
+        // listeners when they are notified (see resolveDeferredValue())
+        if (newValue == PENDING_SNAPSHOT && !isBatchUpdating() && getDispatcher() == null)
+        {
+            newValue = getLocalValue();
+            
+            if (newValue == oldValue) return;
+        }
+        
+        super.fireVariableChanged(oldValue, newValue);
+    }
+    
+    @Override
+    boolean isDeferredValue(Object value)
+    {
+        return value == PENDING_SNAPSHOT;
+    }
+    
+    @Override
+    T[] resolveDeferredValue(T[] value)
+    {
+        return value == PENDING_SNAPSHOT ? getLocalValue() : value;
+    }
+    
+    /**
+     * Marks the current snapshot as outdated. Must be called while holding the lock on
+     * {@link #elements}
+     * 
+     * @return the last array handed out (i.e. the old value of this variable)
+     */
+    private T[] invalidate()
+    {
+        snapshot = null;
+        return published;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void changed(T[] oldValue)
+    {
+        updateVersion();
+        
+        // nobody to notify: skip the snapshot altogether
+        if (!listenerList.isEmpty() || isReferenced() || isBatchUpdating())
+        {
+            fireVariableChanged(oldValue, (T[]) PENDING_SNAPSHOT);
+        }
+    }
+    
+    private boolean checkLocal()
+    {
+        if (getReference() == null) return true;
+        
+        System.err.println("Warning: cannot modify \"" + getName() + "\": it is pointing to another variable");
+        return false;
+    }
+    
+    /**
+     * @return a {@link Spliterator#SIZED sized} spliterator over a snapshot of the list contents
+     */
+    @Override
+    public Spliterator<T> spliterator()
+    {
+        return Arrays.spliterator(getValue());
+    }
+}
@@ -0,0 +1,244 @@
+package plugins.adufour.vars.lang;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import plugins.adufour.vars.gui.VarEditor;
+import plugins.adufour.vars.gui.VarEditorFactory;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Counter variable designed to be incremented concurrently by many threads (e.g. the workers of a
+ * parallel computation). Increments are applied to striped cells (see {@link LongAdder}) and
+ * therefore do not contend with each other, while the aggregated value is published to the
+ * listeners at a bounded rate (see {@link #setPublishInterval(long)}), so as not to flood them
+ * (and the graphical interface) with events. By default, this variable is displayed as a read-only
+ * label.<br/>
+ * Notes:
+ * <ul>
+ * <li>{@link #getValue()} always returns the current sum, even if it has not been published
+ * yet</li>
+ * <li>{@link #setValue(Long)} and {@link #reset()} are not atomic with respect to concurrent
+ * increments, and should be called while no increment is in progress</li>
+ * <li>Increments are applied to the local counter, which is ignored while this variable references
+ * another one</li>
+ * <li>The {@link #getVersion() version} of this variable tracks the published value: it changes
+ * when the value is notified to the listeners, not on every increment (which would make all the
+ * incrementing threads contend on the version clock)</li>
+ * </ul>
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarLongAdder extends VarNumber<Long>
+{
+    /**
+     * Default time (in milliseconds) between two publications of the value to the listeners
+     */
+    public static final long DEFAULT_PUBLISH_INTERVAL = 100;
+    
+    private final LongAdder adder = new LongAdder();
+    
+    /**
+     * The last value notified to the listeners
+     */
+    private long published = 0;
+    
+    private final RatePublisher publisher = new RatePublisher(new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            publish();
+        }
+    }, DEFAULT_PUBLISH_INTERVAL);
+    
+    /**
+     * Creates a new counter starting at 0
+     * 
+     * @param name
+     *            the name of this variable
+     */
+    public VarLongAdder(String name)
+    {
+        this(name, null);
+    }
+    
+    /**
+     * Creates a new counter starting at 0
+     * 
+     * @param name
+     *            the name of this variable
+     * @param defaultListener
+     *            A listener to add to this variable immediately after creation
+     */
+    public VarLongAdder(String name, VarListener<Long> defaultListener)
+    {
+        super(name, Long.class, 0L, defaultListener);
+    }
+    
+    /**
+     * Adds one to this counter
+     */
+    public void increment()
+    {
+        adder.increment();
+        publisher.changed();
+    }
+    
+    /**
+     * Adds the specified amount to this counter
+     * 
+     * @param x
+     *            the amount to add
+     */
+    public void add(long x)
+    {
+        adder.add(x);
+        publisher.changed();
+    }
+    
+    /**
+     * Resets this counter to 0
+     */
+    public void reset()
+    {
+        setValue(0L);
+    }
+    
+    /**
+     * @return the value of this variable (or that of the referenced variable, if any) as a
+     *         primitive long. The returned value is the current sum of this counter, which may not
+     *         have been published yet
+     */
+    public long getLong()
+    {
+        if (getReference() == null) return adder.sum();
+        
+        Number number = super.getValue(true);
+        
+        return number.longValue();
+    }
+    
+    @Override
+    public Long getValue(boolean forbidNull)
+    {
+        if (getReference() == null) return adder.sum();
+        
+        Number number = super.getValue(forbidNull);
+        
+        return number == null ? null : number.longValue();
+    }
+    
+    @Override
+    protected Long convertReferencedValue(Object value)
+    {
+        return value == null ? null : ((Number) value).longValue();
+    }
+    
+    /**
+     * Sets the value of this counter and notifies the listeners immediately. Since this variable
+     * cannot hold a <code>null</code> value, a <code>null</code> argument resets the counter to 0
+     */
+    @Override
+    public void setValue(Long newValue)
+    {
+        if (getReference() != null)
+        {
+            System.err.println("Warning: cannot assign a value to \"" + getName() + "\": it is pointing to another variable");
+            return;
+        }
+        
+        synchronized (adder)
+        {
+            adder.reset();
+            if (newValue != null) adder.add(newValue);
+        }
+        
+        publish();
+    }
+    
+    /**
+     * @return the minimum time (in milliseconds) between two notifications of the listeners
+     */
+    public long getPublishInterval()
+    {
+        return publisher.getInterval();
+    }
+    
+    /**
+     * Sets the minimum time between two notifications of the listeners. Increments occurring in
+     * between are notified together, in a single event fired by a background thread.
+     * 
+     * @param interval
+     *            the time in milliseconds (0 to notify the listeners after each increment, in the
+     *            incrementing thread)
+     */
+    public void setPublishInterval(long interval)
+    {
+        publisher.setInterval(interval);
+    }
+    
+    /**
+     * Notifies the listeners of the current value of this counter (if it has changed since the last
+     * notification). This method is called automatically at the publication rate, but may be
+     * called explicitly, e.g. to display the final value at the end of a computation.
+     */
+    public void publish()
+    {
+        long current, previous;
+        
+        synchronized (adder)
+        {
+            current = adder.sum();
+            previous = published;
+            
+            if (current == previous) return;
+            
+            published = current;
+            updateVersion();
+        }
+        
+        // listeners are notified without holding the lock, as they may take some time (or call
+        // this variable back from another thread)
+        fireVariableChanged(previous, current);
+    }
+    
+    @Override
+    protected Long getLocalValue()
+    {
+        return adder.sum();
+    }
+    
+    @Override
+    protected boolean compareAndSetLocalValue(Long currentValue, Long newValue)
+    {
+        synchronized (adder)
+        {
+            if (adder.sum() != currentValue) return false;
+            
+            adder.reset();
+            if (newValue != null) adder.add(newValue);
+            
+            // the caller notifies the listeners
+            published = adder.sum();
+            return true;
+        }
+    }
+    
+    @Override
+    public Long parse(String s)
+    {
+        return Long.parseLong(s);
+    }
+    
+    @Override
+    public int compareTo(Long value)
+    {
+        return Long.compare(getLong(), value);
+    }
+    
+    @Override
+    public VarEditor<Long> createVarEditor()
+    {
+        return VarEditorFactory.getDefaultFactory().createLabel(this);
+    }
+}
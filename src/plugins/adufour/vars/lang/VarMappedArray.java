@@ -0,0 +1,118 @@
+package plugins.adufour.vars.lang;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import plugins.adufour.vars.util.MappedArray;
+import plugins.adufour.vars.util.MappedArray.ElementType;
+import plugins.adufour.vars.util.VarException;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * File variable giving read access to a primitive array stored in a raw binary file, via a
+ * {@link MappedArray memory-mapped} view of the file (i.e. without reading it into the heap). The
+ * layout of the file (element type, byte order and position of the first element) is declared by
+ * the plug-in, while the file itself is chosen by the user. Since this variable holds a
+ * {@link File}, it can be linked with any {@link VarFile}, and only the file path is stored in XML
+ * files.<br/>
+ * <br/>
+ * The file is mapped on the first call to {@link #getMappedArray()}, and remapped whenever the
+ * file changes. The returned array can be shared by any number of worker threads.
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarMappedArray extends VarFile
+{
+    private final ElementType elementType;
+    
+    private final ByteOrder byteOrder;
+    
+    private final long offset;
+    
+    private MappedArray mappedArray;
+    
+    /**
+     * Creates a new variable mapping all the elements of a file (from the specified offset until
+     * the end of the file)
+     * 
+     * @param name
+     *            the variable name
+     * @param elementType
+     *            the type of the elements stored in the file
+     * @param byteOrder
+     *            the byte order of the elements stored in the file
+     * @param offset
+     *            the position of the first element in the file (in bytes), e.g. to skip a header
+     * @param defaultListener
+     *            A listener to add to this variable immediately after creation
+     */
+    public VarMappedArray(String name, ElementType elementType, ByteOrder byteOrder, long offset, VarListener<File> defaultListener)
+    {
+        super(name, null, defaultListener);
+        
+        if (offset < 0) throw new IllegalArgumentException("Invalid offset: " + offset);
+        
+        this.elementType = elementType;
+        this.byteOrder = byteOrder;
+        this.offset = offset;
+    }
+    
+    /**
+     * @return the type of the elements stored in the file
+     */
+    public ElementType getElementType()
+    {
+        return elementType;
+    }
+    
+    /**
+     * @return the byte order of the elements stored in the file
+     */
+    public ByteOrder getByteOrder()
+    {
+        return byteOrder;
+    }
+    
+    /**
+     * @return the position of the first element in the file (in bytes)
+     */
+    public long getOffset()
+    {
+        return offset;
+    }
+    
+    /**
+     * @return a memory-mapped view of the current file (mapped on the first call, then shared
+     *         until the file changes)
+     * @throws VarException
+     *             if no file is specified
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    public synchronized MappedArray getMappedArray() throws VarException, IOException
+    {
+        File file = getValue(true);
+        
+        if (mappedArray == null || !mappedArray.getFile().equals(file))
+        {
+            mappedArray = MappedArray.map(file, elementType, byteOrder, offset, -1);
+        }
+        
+        return mappedArray;
+    }
+    
+    /**
+     * Releases the current mapping (if any), so that the file can be unmapped by the garbage
+     * collector. Arrays previously obtained via {@link #getMappedArray()} can no longer be read
+     * (see {@link MappedArray#release()}), while the next call to {@link #getMappedArray()} maps
+     * the file again.
+     */
+    public synchronized void release()
+    {
+        if (mappedArray == null) return;
+        
+        mappedArray.release();
+        mappedArray = null;
+    }
+}
@@ -1,7 +1,6 @@
 package plugins.adufour.vars.lang;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
 
 import icy.sequence.Sequence;
 import icy.type.DataType;
@@ -11,7 +10,9 @@ import plugins.adufour.vars.gui.VarEditor;
 import plugins.adufour.vars.gui.VarEditorFactory;
 import plugins.adufour.vars.gui.model.TypeSelectionModel;
 import plugins.adufour.vars.gui.model.VarEditorModel;
+import plugins.adufour.vars.util.ListenerList;
 import plugins.adufour.vars.util.MutableType;
+import plugins.adufour.vars.util.PrimitiveArrayConverter;
 import plugins.adufour.vars.util.TypeChangeListener;
 import plugins.adufour.vars.util.VarListener;
 
@@ -23,7 +24,7 @@ import plugins.adufour.vars.util.VarListener;
 @SuppressWarnings("rawtypes")
 public class VarMutable extends Var implements MutableType
 {
-    private final ArrayList<TypeChangeListener> listeners = new ArrayList<TypeChangeListener>();
+    private final ListenerList<TypeChangeListener> listeners = new ListenerList<TypeChangeListener>(TypeChangeListener.class);
     
     /**
      * Constructs a new mutable variable with specified name and type. The default value for mutable
@@ -139,7 +140,7 @@ public class VarMutable extends Var implements MutableType
         
         this.type = newType;
         
-        for (TypeChangeListener listener : listeners)
+        for (TypeChangeListener listener : listeners.getListeners())
             listener.typeChanged(this, oldType, newType);
     }
     
@@ -177,23 +178,30 @@ public class VarMutable extends Var implements MutableType
             {
                 // create a new valid array
                 Class<?> localType = getType().getComponentType();
-                int nbValues = Array.getLength(newValue);
-                Object array = Array.newInstance(localType, nbValues);
                 
-                if (localType.isPrimitive())
+                // numeric arrays are converted via specialized loops (no reflection nor boxing)
+                Object array = localType.isPrimitive() ? PrimitiveArrayConverter.convert(newValue, localType) : null;
+                
+                if (array == null)
                 {
-                    DataType dataType = ArrayUtil.getDataType(array);
-                    for (int i = 0; i < nbValues; i++)
+                    int nbValues = Array.getLength(newValue);
+                    array = Array.newInstance(localType, nbValues);
+                    
+                    if (localType.isPrimitive())
                     {
-                        // assume newValue also has numbers inside...
-                        Number n = (Number) Array.get(newValue, i);
-                        // let Icy do the conversion
-                        Array1DUtil.setValue(array, i, dataType, n.doubleValue());
+                        DataType dataType = ArrayUtil.getDataType(array);
+                        for (int i = 0; i < nbValues; i++)
+                        {
+                            // assume newValue also has numbers inside...
+                            Number n = (Number) Array.get(newValue, i);
+                            // let Icy do the conversion
+                            Array1DUtil.setValue(array, i, dataType, n.doubleValue());
+                        }
+                    }
+                    else
+                    {
+                        System.arraycopy(newValue, 0, array, 0, nbValues);
                     }
-                }
-                else
-                {
-                    System.arraycopy(newValue, 0, array, 0, nbValues);
                 }
                 
                 super.setValue(array);
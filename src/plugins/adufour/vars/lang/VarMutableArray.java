@@ -67,12 +67,9 @@ public class VarMutableArray extends VarMutable
     {
         // handle the case where the reference is not an array
         
-        @SuppressWarnings("rawtypes")
-        Var reference = getReference();
+        if (getReference() == null) return super.getValue(forbidNull);
         
-        if (reference == null) return super.getValue(forbidNull);
-        
-        Object value = reference.getValue();
+        Object value = getReadSource().getValue();
         
         if (value == null) return super.getValue(forbidNull);
         
@@ -82,4 +79,14 @@ public class VarMutableArray extends VarMutable
         Array.set(array, 0, value);
         return array;
     }
+    
+    @Override
+    protected Object convertReferencedValue(Object value)
+    {
+        if (value == null || value.getClass().isArray()) return value;
+        
+        Object array = Array.newInstance(value.getClass(), 1);
+        Array.set(array, 0, value);
+        return array;
+    }
 }
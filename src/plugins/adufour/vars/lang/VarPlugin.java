@@ -1,10 +1,17 @@
 package plugins.adufour.vars.lang;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+
 import icy.plugin.PluginDescriptor;
 import icy.plugin.PluginLoader;
 import icy.plugin.abstract_.Plugin;
 import plugins.adufour.vars.gui.VarEditor;
 import plugins.adufour.vars.gui.VarEditorFactory;
+import plugins.adufour.vars.util.Resettable;
 import plugins.adufour.vars.util.VarListener;
 
 /**
@@ -14,8 +21,37 @@ import plugins.adufour.vars.util.VarListener;
  */
 public class VarPlugin<P extends Plugin> extends Var<PluginDescriptor>
 {
+    /**
+     * No-argument constructors of the plug-in classes, resolved once per class (<code>null</code>
+     * if the class cannot be instantiated this way)
+     */
+    private static final ClassValue<MethodHandle> constructors = new ClassValue<MethodHandle>()
+    {
+        @Override
+        protected MethodHandle computeValue(Class<?> pluginClass)
+        {
+            try
+            {
+                Constructor<?> constructor = pluginClass.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+            }
+            catch (Exception e)
+            {
+                return null;
+            }
+        }
+    };
+    
     public final Class<P> pluginType;
     
+    /**
+     * Released instances, ready to be reused (guarded by itself)
+     */
+    private final ArrayDeque<P> instancePool = new ArrayDeque<P>();
+    
+    private volatile int instancePoolSize = 0;
+    
     /**
      * @param name
      * @param pluginType
@@ -43,18 +79,36 @@ public class VarPlugin<P extends Plugin> extends Var<PluginDescriptor>
         return VarEditorFactory.getDefaultFactory().createPluginChooser(this);
     }
     
+    /**
+     * Creates a new instance of the selected plug-in. The constructor of each plug-in class is
+     * resolved once and cached, so that repeated instantiations do not involve reflection
+     * 
+     * @return a new instance of the selected plug-in, or <code>null</code> if it cannot be
+     *         instantiated
+     * @see #acquireInstance()
+     */
     @SuppressWarnings("unchecked")
     public P newInstance()
     {
+        Class<?> pluginClass = getValue(true).getPluginClass();
+        MethodHandle constructor = constructors.get(pluginClass);
+        
         try
         {
-            return ((Class<P>) getValue(true).getPluginClass()).newInstance();
+            if (constructor != null) return (P) (Object) constructor.invokeExact();
+            
+            // let the reflection API report the problem
+            return (P) pluginClass.newInstance();
         }
-        catch (InstantiationException e)
+        catch (RuntimeException e)
         {
-            e.printStackTrace();
+            throw e;
+        }
+        catch (Error e)
+        {
+            throw e;
         }
-        catch (IllegalAccessException e)
+        catch (Throwable e)
         {
             e.printStackTrace();
         }
@@ -62,6 +116,82 @@ public class VarPlugin<P extends Plugin> extends Var<PluginDescriptor>
         return null;
     }
     
+    /**
+     * Sets the maximum number of released instances kept by this variable for later reuse (see
+     * {@link #acquireInstance()}). Pooling is disabled by default (size 0), and should only be
+     * enabled for plug-ins that are stateless, or implement {@link Resettable}
+     * 
+     * @param maxSize
+     *            the maximum number of pooled instances (0 to disable pooling)
+     */
+    public void setInstancePoolSize(int maxSize)
+    {
+        if (maxSize < 0) throw new IllegalArgumentException("Invalid pool size: " + maxSize);
+        
+        instancePoolSize = maxSize;
+        
+        synchronized (instancePool)
+        {
+            while (instancePool.size() > maxSize)
+                instancePool.poll();
+        }
+    }
+    
+    /**
+     * @return the maximum number of released instances kept by this variable for later reuse
+     */
+    public int getInstancePoolSize()
+    {
+        return instancePoolSize;
+    }
+    
+    /**
+     * Returns an instance of the selected plug-in, reusing a {@link #releaseInstance(Plugin)
+     * released} instance if available, or creating a new instance otherwise
+     * 
+     * @return an instance of the selected plug-in, or <code>null</code> if it cannot be
+     *         instantiated
+     */
+    public P acquireInstance()
+    {
+        Class<?> pluginClass = getValue(true).getPluginClass();
+        
+        synchronized (instancePool)
+        {
+            P instance = instancePool.poll();
+            
+            if (instance != null)
+            {
+                if (instance.getClass() == pluginClass) return instance;
+                
+                // another plug-in was selected in the meantime
+                instancePool.clear();
+            }
+        }
+        
+        return newInstance();
+    }
+    
+    /**
+     * Gives an instance back to this variable after use, so that it can be reused by
+     * {@link #acquireInstance()} (if pooling is enabled and the pool is not full). If the instance
+     * implements {@link Resettable}, it is reset before being pooled.
+     * 
+     * @param instance
+     *            the instance to release (it must not be used by the caller afterwards)
+     */
+    public void releaseInstance(P instance)
+    {
+        if (instance == null || instancePoolSize == 0) return;
+        
+        if (instance instanceof Resettable) ((Resettable) instance).reset();
+        
+        synchronized (instancePool)
+        {
+            if (instancePool.size() < instancePoolSize) instancePool.push(instance);
+        }
+    }
+    
     @Override
     public String getValueAsString()
     {
@@ -109,6 +109,7 @@ public class VarSequence extends Var<Sequence>
         noSequenceSelection = true;
         Sequence oldValue = getValue();
         setValue(null);
+        updateVersion();
         fireVariableChanged(oldValue, null);
     }
     
@@ -54,10 +54,10 @@ public class VarTrigger extends VarInteger
      */
     public void trigger()
     {
-        super.setValue(getValue() + 1);
+        getAndAdd(1);
         
         // Fire trigger listeners
-        for (VarListener<Integer> listener : listeners)
+        for (VarListener<Integer> listener : listenerList.getListeners())
             if (listener instanceof TriggerListener) ((TriggerListener) listener).triggered(this);
     }
 }
@@ -0,0 +1,214 @@
+package plugins.adufour.vars.util;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+
+/**
+ * Formatter writing the elements of an array (of primitives or objects) as text, separated by a
+ * given separator. Primitive elements are written directly into the target buffer, without boxing
+ * or creating intermediate strings. When writing to an arbitrary {@link Appendable} (e.g. a file
+ * writer), the text is produced through a small fixed-size buffer, so that the whole text never
+ * needs to be held in memory.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class ArrayFormatter
+{
+    /**
+     * Number of characters buffered before they are flushed to the target {@link Appendable}
+     */
+    private static final int CHUNK_SIZE = 8192;
+    
+    /**
+     * Number of elements formatted by {@link #estimateLength(Object)} to measure the average length
+     * of an element
+     */
+    private static final int SAMPLE_SIZE = 32;
+    
+    private ArrayFormatter()
+    {
+    }
+    
+    /**
+     * Appends the elements of the specified array to the specified buffer
+     * 
+     * @param sb
+     *            the buffer to append to
+     * @param array
+     *            the array to format (of any primitive or object type)
+     * @param separator
+     *            the text to insert between consecutive elements
+     * @throws IllegalArgumentException
+     *             if the specified object is not an array
+     */
+    public static void format(StringBuilder sb, Object array, String separator) throws IllegalArgumentException
+    {
+        try
+        {
+            format(sb, null, array, separator);
+        }
+        catch (IOException e)
+        {
+            // cannot happen, as nothing is flushed
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Writes the elements of the specified array to the specified output
+     * 
+     * @param out
+     *            the output to write to
+     * @param array
+     *            the array to format (of any primitive or object type)
+     * @param separator
+     *            the text to insert between consecutive elements
+     * @throws IOException
+     *             if the output cannot be written to
+     * @throws IllegalArgumentException
+     *             if the specified object is not an array
+     */
+    public static void write(Appendable out, Object array, String separator) throws IOException, IllegalArgumentException
+    {
+        if (out instanceof StringBuilder)
+        {
+            format((StringBuilder) out, array, separator);
+            return;
+        }
+        
+        StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 64);
+        format(chunk, out, array, separator);
+        out.append(chunk);
+    }
+    
+    /**
+     * @param array
+     *            an array
+     * @return an estimation of the number of characters needed to format the specified array with
+     *         a single-character separator (used to size buffers). The estimation is extrapolated
+     *         from a small sample of elements spread over the array.
+     */
+    public static int estimateLength(Object array)
+    {
+        int length = Array.getLength(array);
+        
+        if (length == 0) return 0;
+        
+        int sampleSize = Math.min(length, SAMPLE_SIZE);
+        
+        StringBuilder sample = new StringBuilder();
+        
+        for (int i = 0; i < sampleSize; i++)
+            sample.append(Array.get(array, (int) ((long) i * length / sampleSize))).append(' ');
+        
+        long estimate = (long) length * sample.length() / sampleSize;
+        
+        // a little extra room, so that a slightly longer text does not double the buffer
+        return (int) Math.min(Integer.MAX_VALUE - 8, estimate + estimate / 16);
+    }
+    
+    /**
+     * Formats the array into the specified buffer, flushing it to the specified output (if any)
+     * whenever it is full
+     */
+    private static void format(StringBuilder sb, Appendable out, Object array, String separator) throws IOException
+    {
+        if (array instanceof double[])
+        {
+            double[] a = (double[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof float[])
+        {
+            float[] a = (float[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof int[])
+        {
+            int[] a = (int[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof long[])
+        {
+            long[] a = (long[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof short[])
+        {
+            short[] a = (short[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof byte[])
+        {
+            byte[] a = (byte[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof boolean[])
+        {
+            boolean[] a = (boolean[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof char[])
+        {
+            char[] a = (char[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i]);
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else if (array instanceof Object[])
+        {
+            Object[] a = (Object[]) array;
+            for (int i = 0; i < a.length; i++)
+            {
+                if (i > 0) sb.append(separator);
+                sb.append(a[i] == null ? "null" : a[i].toString());
+                if (out != null && sb.length() >= CHUNK_SIZE) flush(sb, out);
+            }
+        }
+        else throw new IllegalArgumentException(array == null ? "null" : array.getClass().getName() + " is not an array");
+    }
+    
+    private static void flush(StringBuilder sb, Appendable out) throws IOException
+    {
+        out.append(sb);
+        sb.setLength(0);
+    }
+}
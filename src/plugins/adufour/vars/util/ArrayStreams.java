@@ -0,0 +1,347 @@
+package plugins.adufour.vars.util;
+
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stream and spliterator views over native arrays, and parallel loops over their elements. Views
+ * read the arrays directly (no copy is made), and report the {@link Spliterator#SIZED SIZED} and
+ * {@link Spliterator#SUBSIZED SUBSIZED} characteristics, so that parallel streams split them
+ * evenly.<br/>
+ * <br/>
+ * The <code>forEachParallel</code> methods process the elements in the common fork-join pool, and
+ * can be cancelled, either by interrupting the calling thread, or via an explicit cancellation
+ * condition: remaining elements are then skipped (and the interrupted flag of the calling thread
+ * is left untouched). Note that the stop button of an EzPlug only interrupts the execution thread
+ * if the plug-in does not override {@link plugins.adufour.ezplug.EzPlug#stopExecution()}. Plug-ins
+ * implementing their own stop mechanism should pass a cancellation condition instead (e.g. reading
+ * a flag raised by their <code>stopExecution()</code> method).
+ * 
+ * @author Alexandre Dufour
+ */
+public final class ArrayStreams
+{
+    /**
+     * Number of elements processed between two checks of the cancellation condition
+     */
+    private static final int CANCELLATION_CHECK_INTERVAL = 4096;
+    
+    private ArrayStreams()
+    {
+    }
+    
+    /**
+     * @param array
+     *            a float array
+     * @return a spliterator over the specified float array, whose elements are widened to
+     *         <code>double</code> (without loss of precision)
+     */
+    public static Spliterator.OfDouble spliterator(float[] array)
+    {
+        return new FloatArraySpliterator(array, 0, array.length);
+    }
+    
+    /**
+     * @param array
+     *            a float array
+     * @param parallel
+     *            <code>true</code> to create a parallel stream
+     * @return a stream over the specified float array, whose elements are widened to
+     *         <code>double</code> (without loss of precision)
+     */
+    public static DoubleStream stream(float[] array, boolean parallel)
+    {
+        return StreamSupport.doubleStream(spliterator(array), parallel);
+    }
+    
+    /**
+     * Applies the specified action to each element of the array, in parallel. The
+     * processing is cancelled if the calling thread is interrupted.
+     * 
+     * @param array
+     *            the array to process
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         calling thread was interrupted in the meantime
+     */
+    public static boolean forEachParallel(double[] array, DoubleConsumer action)
+    {
+        return forEachParallel(array, action, interruption());
+    }
+    
+    /**
+     * Applies the specified action to each element of the array, in parallel
+     * 
+     * @param array
+     *            the array to process
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @param cancelled
+     *            the cancellation condition, checked regularly (and concurrently) while the
+     *            elements are processed
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         processing was cancelled in the meantime
+     */
+    public static boolean forEachParallel(final double[] array, final DoubleConsumer action, BooleanSupplier cancelled)
+    {
+        return forEachParallel(array.length, cancelled, new RangeProcessor()
+        {
+            @Override
+            public void process(int from, int to)
+            {
+                for (int i = from; i < to; i++)
+                    action.accept(array[i]);
+            }
+        });
+    }
+    
+    /**
+     * Applies the specified action to each element of the array (widened to <code>double</code>),
+     * in parallel. The
+     * processing is cancelled if the calling thread is interrupted.
+     * 
+     * @param array
+     *            the array to process
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         calling thread was interrupted in the meantime
+     */
+    public static boolean forEachParallel(float[] array, DoubleConsumer action)
+    {
+        return forEachParallel(array, action, interruption());
+    }
+    
+    /**
+     * Applies the specified action to each element of the array (widened to <code>double</code>),
+     * in parallel
+     * 
+     * @param array
+     *            the array to process
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @param cancelled
+     *            the cancellation condition, checked regularly (and concurrently) while the
+     *            elements are processed
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         processing was cancelled in the meantime
+     */
+    public static boolean forEachParallel(final float[] array, final DoubleConsumer action, BooleanSupplier cancelled)
+    {
+        return forEachParallel(array.length, cancelled, new RangeProcessor()
+        {
+            @Override
+            public void process(int from, int to)
+            {
+                for (int i = from; i < to; i++)
+                    action.accept(array[i]);
+            }
+        });
+    }
+    
+    /**
+     * Applies the specified action to each element of the array, in parallel. The
+     * processing is cancelled if the calling thread is interrupted.
+     * 
+     * @param array
+     *            the array to process
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         calling thread was interrupted in the meantime
+     */
+    public static boolean forEachParallel(int[] array, IntConsumer action)
+    {
+        return forEachParallel(array, action, interruption());
+    }
+    
+    /**
+     * Applies the specified action to each element of the array, in parallel
+     * 
+     * @param array
+     *            the array to process
+     * @param action
+     *            the action to apply to each element (it must be thread-safe, and elements are
+     *            processed in no particular order)
+     * @param cancelled
+     *            the cancellation condition, checked regularly (and concurrently) while the
+     *            elements are processed
+     * @return <code>true</code> if all elements have been processed, <code>false</code> if the
+     *         processing was cancelled in the meantime
+     */
+    public static boolean forEachParallel(final int[] array, final IntConsumer action, BooleanSupplier cancelled)
+    {
+        return forEachParallel(array.length, cancelled, new RangeProcessor()
+        {
+            @Override
+            public void process(int from, int to)
+            {
+                for (int i = from; i < to; i++)
+                    action.accept(array[i]);
+            }
+        });
+    }
+    
+    /**
+     * @return a cancellation condition satisfied once the calling thread is interrupted
+     */
+    private static BooleanSupplier interruption()
+    {
+        final Thread caller = Thread.currentThread();
+        
+        return new BooleanSupplier()
+        {
+            @Override
+            public boolean getAsBoolean()
+            {
+                return caller.isInterrupted();
+            }
+        };
+    }
+    
+    private static boolean forEachParallel(int length, BooleanSupplier cancelled, RangeProcessor processor)
+    {
+        if (cancelled.getAsBoolean()) return false;
+        
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        
+        // a few chunks per worker, to balance uneven workloads
+        int chunkSize = Math.max(CANCELLATION_CHECK_INTERVAL, length / (4 * pool.getParallelism()));
+        
+        pool.invoke(new RangeTask(processor, cancelled, 0, length, chunkSize));
+        
+        return !cancelled.getAsBoolean();
+    }
+    
+    /**
+     * Processes a range of array indices
+     */
+    private interface RangeProcessor
+    {
+        /**
+         * @param from
+         *            the first index to process (inclusive)
+         * @param to
+         *            the last index to process (exclusive)
+         */
+        void process(int from, int to);
+    }
+    
+    /**
+     * Recursively splits a range of indices into chunks, processed in parallel
+     */
+    private static final class RangeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        
+        private final RangeProcessor processor;
+        
+        private final BooleanSupplier cancelled;
+        
+        private final int from, to, chunkSize;
+        
+        RangeTask(RangeProcessor processor, BooleanSupplier cancelled, int from, int to, int chunkSize)
+        {
+            this.processor = processor;
+            this.cancelled = cancelled;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if (to - from > chunkSize)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(processor, cancelled, from, middle, chunkSize), new RangeTask(processor, cancelled, middle, to, chunkSize));
+                return;
+            }
+            
+            for (int start = from, end; start < to; start = end)
+            {
+                if (cancelled.getAsBoolean()) return;
+                
+                end = to - start > CANCELLATION_CHECK_INTERVAL ? start + CANCELLATION_CHECK_INTERVAL : to;
+                processor.process(start, end);
+            }
+        }
+    }
+    
+    /**
+     * Spliterator over a range of a float array, widening elements to <code>double</code>
+     */
+    private static final class FloatArraySpliterator implements Spliterator.OfDouble
+    {
+        private final float[] array;
+        
+        private int index;
+        
+        private final int end;
+        
+        FloatArraySpliterator(float[] array, int from, int to)
+        {
+            this.array = array;
+            this.index = from;
+            this.end = to;
+        }
+        
+        @Override
+        public OfDouble trySplit()
+        {
+            int middle = (index + end) >>> 1;
+            
+            if (middle <= index) return null;
+            
+            FloatArraySpliterator prefix = new FloatArraySpliterator(array, index, middle);
+            index = middle;
+            return prefix;
+        }
+        
+        @Override
+        public boolean tryAdvance(DoubleConsumer action)
+        {
+            if (index >= end) return false;
+            
+            action.accept(array[index++]);
+            return true;
+        }
+        
+        @Override
+        public void forEachRemaining(DoubleConsumer action)
+        {
+            float[] a = array;
+            int hi = end;
+            int i = index;
+            index = hi;
+            
+            for (; i < hi; i++)
+                action.accept(a[i]);
+        }
+        
+        @Override
+        public long estimateSize()
+        {
+            return end - index;
+        }
+        
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+}
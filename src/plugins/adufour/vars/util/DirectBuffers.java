@@ -0,0 +1,115 @@
+package plugins.adufour.vars.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Utility methods to allocate and release direct (off-heap) buffers. Direct buffers are normally
+ * released by the garbage collector when they become unreachable, which may happen long after they
+ * were last used since they hardly weigh on the Java heap. The {@link #free(ByteBuffer)} method
+ * releases the native memory immediately, when supported by the running JVM.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class DirectBuffers
+{
+    /**
+     * Method releasing the memory of a direct buffer (or <code>null</code> if not supported)
+     */
+    private static final Method cleanMethod;
+    
+    /**
+     * Object on which {@link #cleanMethod} should be invoked (<code>null</code> if the method is
+     * invoked on the buffer's cleaner)
+     */
+    private static final Object cleanTarget;
+    
+    static
+    {
+        Method method = null;
+        Object target = null;
+        
+        try
+        {
+            // Java 9+: sun.misc.Unsafe.invokeCleaner(ByteBuffer)
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            method = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            target = theUnsafe.get(null);
+        }
+        catch (Exception java8)
+        {
+            try
+            {
+                // Java 8: ((DirectBuffer) buffer).cleaner().clean()
+                method = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                method.setAccessible(true);
+            }
+            catch (Exception unsupported)
+            {
+                method = null;
+            }
+        }
+        
+        cleanMethod = method;
+        cleanTarget = target;
+    }
+    
+    private DirectBuffers()
+    {
+    }
+    
+    /**
+     * Allocates a new zero-filled direct buffer using the native byte order
+     * 
+     * @param capacity
+     *            the number of bytes to allocate
+     * @return the new buffer
+     * @throws OutOfMemoryError
+     *             if the native memory is exhausted
+     */
+    public static ByteBuffer allocate(long capacity) throws OutOfMemoryError
+    {
+        if (capacity > Integer.MAX_VALUE) throw new OutOfMemoryError("Cannot allocate more than 2GB in a single buffer (requested: " + capacity + " bytes)");
+        
+        return ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.nativeOrder());
+    }
+    
+    /**
+     * Releases the native memory of the specified direct buffer immediately (if supported by the
+     * JVM, otherwise the memory will be released by the garbage collector). The buffer, and
+     * <b>any</b> view or duplicate of it, <b>must not</b> be used afterwards.
+     * 
+     * @param buffer
+     *            the buffer to release (must have been allocated with
+     *            {@link ByteBuffer#allocateDirect(int)} or mapped from a file, and not be a slice
+     *            or duplicate)
+     * @return <code>true</code> if the memory was released, <code>false</code> otherwise
+     */
+    public static boolean free(ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect() || cleanMethod == null) return false;
+        
+        try
+        {
+            if (cleanTarget != null)
+            {
+                cleanMethod.invoke(cleanTarget, buffer);
+            }
+            else
+            {
+                Object cleaner = cleanMethod.invoke(buffer);
+                if (cleaner == null) return false;
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+            return true;
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+}
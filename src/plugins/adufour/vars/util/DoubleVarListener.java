@@ -0,0 +1,25 @@
+package plugins.adufour.vars.util;
+
+import plugins.adufour.vars.lang.VarDouble;
+
+/**
+ * Interface allowing to listen to value changes of a {@link VarDouble} without boxing the
+ * old and new values. Reference changes are only notified to regular {@link VarListener}s
+ * 
+ * @author Alexandre Dufour
+ * @see VarDouble#addListener(DoubleVarListener)
+ */
+public interface DoubleVarListener
+{
+    /**
+     * Called when the value of the source variable changes
+     * 
+     * @param source
+     *            the variable firing the listener
+     * @param oldValue
+     *            the old variable value
+     * @param newValue
+     *            the new variable value
+     */
+    void valueChanged(VarDouble source, double oldValue, double newValue);
+}
@@ -0,0 +1,321 @@
+package plugins.adufour.vars.util;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Thread-safe, copy-on-write registry of listeners. Listeners are stored in an immutable snapshot
+ * array that is replaced (never modified) whenever a listener is added or removed. Reading the
+ * registry is therefore lock-free, and notifying listeners via {@link #getListeners()} does not
+ * allocate any memory:
+ * 
+ * <pre>
+ * for (MyListener l : registry.getListeners())
+ *     l.somethingHappened();
+ * </pre>
+ * 
+ * Listeners are added at most once (duplicates are ignored), and are notified in their order of
+ * registration.
+ * 
+ * @author Alexandre Dufour
+ * @param <L>
+ *            the type of listener to store
+ */
+public final class ListenerList<L> implements Iterable<L>
+{
+    private final L[] empty;
+    
+    private volatile L[] listeners;
+    
+    /**
+     * Creates a new empty listener registry
+     * 
+     * @param listenerType
+     *            the type of listener to store (used to create the snapshot arrays)
+     */
+    @SuppressWarnings("unchecked")
+    public ListenerList(Class<? super L> listenerType)
+    {
+        empty = (L[]) Array.newInstance(listenerType, 0);
+        listeners = empty;
+    }
+    
+    /**
+     * Adds the specified listener to this registry (if not already registered)
+     * 
+     * @param listener
+     *            the listener to add
+     * @return <code>true</code> if the listener was added, <code>false</code> if it was already
+     *         registered
+     */
+    public synchronized boolean add(L listener)
+    {
+        L[] current = listeners;
+        
+        if (indexOf(current, listener) >= 0) return false;
+        
+        L[] copy = Arrays.copyOf(current, current.length + 1);
+        copy[current.length] = listener;
+        listeners = copy;
+        return true;
+    }
+    
+    /**
+     * Removes the specified listener from this registry
+     * 
+     * @param listener
+     *            the listener to remove
+     * @return <code>true</code> if the listener was removed, <code>false</code> if it was not
+     *         registered
+     */
+    public synchronized boolean remove(Object listener)
+    {
+        L[] current = listeners;
+        
+        int index = indexOf(current, listener);
+        
+        if (index < 0) return false;
+        
+        if (current.length == 1)
+        {
+            listeners = empty;
+            return true;
+        }
+        
+        L[] copy = Arrays.copyOf(current, current.length - 1);
+        System.arraycopy(current, index + 1, copy, index, current.length - index - 1);
+        listeners = copy;
+        return true;
+    }
+    
+    /**
+     * Removes all listeners from this registry
+     */
+    public synchronized void clear()
+    {
+        listeners = empty;
+    }
+    
+    /**
+     * @param listener
+     * @return <code>true</code> if the specified listener is currently registered
+     */
+    public boolean contains(Object listener)
+    {
+        return indexOf(listeners, listener) >= 0;
+    }
+    
+    /**
+     * @return <code>true</code> if no listener is currently registered
+     */
+    public boolean isEmpty()
+    {
+        return listeners.length == 0;
+    }
+    
+    /**
+     * @return the number of registered listeners
+     */
+    public int size()
+    {
+        return listeners.length;
+    }
+    
+    /**
+     * @return a snapshot of the registered listeners at the time of the call. The returned array is
+     *         shared and <b>must not</b> be modified. Later additions or removals are not reflected
+     *         in the snapshot, which makes it safe to use while listeners register or unregister
+     *         themselves during notification.
+     */
+    public L[] getListeners()
+    {
+        return listeners;
+    }
+    
+    /**
+     * @return an iterator over a snapshot of the registered listeners (the iterator does not
+     *         support removal). Prefer {@link #getListeners()} in performance-critical code.
+     */
+    @Override
+    public Iterator<L> iterator()
+    {
+        final L[] snapshot = listeners;
+        
+        return new Iterator<L>()
+        {
+            private int index = 0;
+            
+            @Override
+            public boolean hasNext()
+            {
+                return index < snapshot.length;
+            }
+            
+            @Override
+            public L next()
+            {
+                if (index >= snapshot.length) throw new NoSuchElementException();
+                return snapshot[index++];
+            }
+            
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException("Use ListenerList.remove() instead");
+            }
+        };
+    }
+    
+    /**
+     * @return a live {@link List} view of this registry, for code written against a plain list of
+     *         listeners. Modifications of the view are applied to this registry, and its iterator
+     *         works on a snapshot (removing via the iterator removes the listener from this
+     *         registry). As the registry holds each listener at most once, the view rejects
+     *         duplicates: {@link List#add(Object)} returns <code>false</code> (as specified by
+     *         {@link java.util.Collection#add(Object)}) if the listener is already registered,
+     *         while {@link List#add(int, Object)} and {@link List#set(int, Object)} throw an
+     *         {@link IllegalArgumentException}.
+     */
+    public List<L> asList()
+    {
+        return new AbstractList<L>()
+        {
+            @Override
+            public L get(int index)
+            {
+                return listeners[index];
+            }
+            
+            @Override
+            public int size()
+            {
+                return listeners.length;
+            }
+            
+            @Override
+            public boolean isEmpty()
+            {
+                return listeners.length == 0;
+            }
+            
+            @Override
+            public boolean contains(Object listener)
+            {
+                return ListenerList.this.contains(listener);
+            }
+            
+            @Override
+            public boolean add(L listener)
+            {
+                return ListenerList.this.add(listener);
+            }
+            
+            @Override
+            public void add(int index, L listener)
+            {
+                insert(index, listener);
+            }
+            
+            @Override
+            public L set(int index, L listener)
+            {
+                synchronized (ListenerList.this)
+                {
+                    int existing = ListenerList.indexOf(listeners, listener);
+                    if (existing >= 0 && existing != index) throw duplicate(listener);
+                    
+                    L[] copy = listeners.clone();
+                    L previous = copy[index];
+                    copy[index] = listener;
+                    listeners = copy;
+                    return previous;
+                }
+            }
+            
+            @Override
+            public L remove(int index)
+            {
+                synchronized (ListenerList.this)
+                {
+                    L listener = listeners[index];
+                    ListenerList.this.remove(listener);
+                    return listener;
+                }
+            }
+            
+            @Override
+            public boolean remove(Object listener)
+            {
+                return ListenerList.this.remove(listener);
+            }
+            
+            @Override
+            public void clear()
+            {
+                ListenerList.this.clear();
+            }
+            
+            @Override
+            public Iterator<L> iterator()
+            {
+                final L[] snapshot = listeners;
+                
+                return new Iterator<L>()
+                {
+                    private int index = 0;
+                    
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return index < snapshot.length;
+                    }
+                    
+                    @Override
+                    public L next()
+                    {
+                        if (index >= snapshot.length) throw new NoSuchElementException();
+                        return snapshot[index++];
+                    }
+                    
+                    @Override
+                    public void remove()
+                    {
+                        if (index == 0) throw new IllegalStateException();
+                        ListenerList.this.remove(snapshot[index - 1]);
+                    }
+                };
+            }
+        };
+    }
+    
+    private synchronized void insert(int index, L listener)
+    {
+        L[] current = listeners;
+        
+        if (index < 0 || index > current.length) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + current.length);
+        
+        if (indexOf(current, listener) >= 0) throw duplicate(listener);
+        
+        L[] copy = Arrays.copyOf(current, current.length + 1);
+        System.arraycopy(current, index, copy, index + 1, current.length - index);
+        copy[index] = listener;
+        listeners = copy;
+    }
+    
+    private static IllegalArgumentException duplicate(Object listener)
+    {
+        return new IllegalArgumentException("Listener already registered: " + listener);
+    }
+    
+    private static int indexOf(Object[] array, Object listener)
+    {
+        for (int i = 0; i < array.length; i++)
+            if (array[i] == listener || (listener != null && listener.equals(array[i]))) return i;
+        
+        return -1;
+    }
+}
@@ -0,0 +1,298 @@
+package plugins.adufour.vars.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Read-only view of a primitive array stored in a binary file, mapped into memory. The file is
+ * not read into the Java heap: elements are loaded on demand by the operating system, which makes
+ * it possible to access files larger than the available memory.<br/>
+ * <br/>
+ * Files larger than 2GB are mapped as several consecutive segments (each segment holding
+ * {@link #getSegmentLength()} elements, except the last one). Elements can be read either one by
+ * one via {@link #getDouble(long)}, or segment by segment via the typed buffer views (e.g.
+ * {@link #getDoubles(int)}). All read methods are thread-safe and do not copy the data.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class MappedArray
+{
+    /**
+     * The supported element types
+     */
+    public enum ElementType
+    {
+        DOUBLE(8), FLOAT(4), INT(4), SHORT(2);
+        
+        /**
+         * Size of an element (in bytes)
+         */
+        public final int size;
+        
+        private ElementType(int size)
+        {
+            this.size = size;
+        }
+    }
+    
+    /**
+     * Maximum size of a segment (in bytes)
+     */
+    private static final int MAX_SEGMENT_BYTES = 1 << 30;
+    
+    private final File file;
+    
+    private final ElementType elementType;
+    
+    private final long length;
+    
+    /**
+     * log2 of the number of elements per segment
+     */
+    private final int segmentShift;
+    
+    private final ByteBuffer[] segments;
+    
+    private volatile boolean released = false;
+    
+    private MappedArray(File file, ElementType elementType, long length, int segmentShift, ByteBuffer[] segments)
+    {
+        this.file = file;
+        this.elementType = elementType;
+        this.length = length;
+        this.segmentShift = segmentShift;
+        this.segments = segments;
+    }
+    
+    /**
+     * Maps the specified region of a file into memory
+     * 
+     * @param file
+     *            the file to map
+     * @param elementType
+     *            the type of the elements stored in the file
+     * @param byteOrder
+     *            the byte order of the elements stored in the file
+     * @param offset
+     *            the position of the first element in the file (in bytes), e.g. to skip a header
+     * @param length
+     *            the number of elements to map, or <code>-1</code> to map all the elements until
+     *            the end of the file
+     * @return the mapped array
+     * @throws IOException
+     *             if the file cannot be read, or is too short
+     */
+    public static MappedArray map(File file, ElementType elementType, ByteOrder byteOrder, long offset, long length) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            
+            long available = (channel.size() - offset) / elementType.size;
+            
+            if (length < 0) length = Math.max(0, available);
+            else if (length > available) throw new IOException("File " + file.getPath() + " is too short: " + length + " elements requested, " + available + " available");
+            
+            int segmentShift = Integer.numberOfTrailingZeros(MAX_SEGMENT_BYTES / elementType.size);
+            long segmentLength = 1L << segmentShift;
+            
+            ByteBuffer[] segments = new ByteBuffer[(int) ((length + segmentLength - 1) >> segmentShift)];
+            
+            for (int i = 0; i < segments.length; i++)
+            {
+                long first = i * segmentLength;
+                long count = Math.min(segmentLength, length - first);
+                segments[i] = channel.map(MapMode.READ_ONLY, offset + first * elementType.size, count * elementType.size).order(byteOrder);
+            }
+            
+            // mappings remain valid after the channel is closed
+            return new MappedArray(file, elementType, length, segmentShift, segments);
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+    
+    /**
+     * @return the mapped file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+    
+    /**
+     * @return the type of the elements
+     */
+    public ElementType getElementType()
+    {
+        return elementType;
+    }
+    
+    /**
+     * @return the number of elements
+     */
+    public long length()
+    {
+        return length;
+    }
+    
+    /**
+     * @return the number of segments
+     */
+    public int getSegmentCount()
+    {
+        return segments.length;
+    }
+    
+    /**
+     * @return the number of elements in each segment (except possibly the last one). Element
+     *         <code>i</code> of segment <code>s</code> is element
+     *         <code>s * getSegmentLength() + i</code> of the array
+     */
+    public int getSegmentLength()
+    {
+        return 1 << segmentShift;
+    }
+    
+    /**
+     * Reads an element, widened to <code>double</code> if necessary
+     * 
+     * @param index
+     *            the index of the element to read
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException
+     *             if the index is out of range
+     * @throws IllegalStateException
+     *             if this array has been {@link #release() released}
+     */
+    public double getDouble(long index) throws IndexOutOfBoundsException, IllegalStateException
+    {
+        checkNotReleased();
+        
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+        
+        ByteBuffer segment = segments[(int) (index >>> segmentShift)];
+        int position = (int) (index & ((1 << segmentShift) - 1)) * elementType.size;
+        
+        switch (elementType)
+        {
+            case DOUBLE:
+                return segment.getDouble(position);
+            case FLOAT:
+                return segment.getFloat(position);
+            case INT:
+                return segment.getInt(position);
+            default:
+                return segment.getShort(position);
+        }
+    }
+    
+    /**
+     * @param segment
+     *            the index of the segment
+     * @return a view of the specified segment (each call returns a new view, which can be used by
+     *         a single thread)
+     * @throws IllegalStateException
+     *             if the elements are not of type {@link ElementType#DOUBLE}, or if this array has
+     *             been {@link #release() released}
+     */
+    public DoubleBuffer getDoubles(int segment) throws IllegalStateException
+    {
+        return view(segment, ElementType.DOUBLE).asDoubleBuffer();
+    }
+    
+    /**
+     * @param segment
+     *            the index of the segment
+     * @return a view of the specified segment (each call returns a new view, which can be used by
+     *         a single thread)
+     * @throws IllegalStateException
+     *             if the elements are not of type {@link ElementType#FLOAT}, or if this array has
+     *             been {@link #release() released}
+     */
+    public FloatBuffer getFloats(int segment) throws IllegalStateException
+    {
+        return view(segment, ElementType.FLOAT).asFloatBuffer();
+    }
+    
+    /**
+     * @param segment
+     *            the index of the segment
+     * @return a view of the specified segment (each call returns a new view, which can be used by
+     *         a single thread)
+     * @throws IllegalStateException
+     *             if the elements are not of type {@link ElementType#INT}, or if this array has
+     *             been {@link #release() released}
+     */
+    public IntBuffer getInts(int segment) throws IllegalStateException
+    {
+        return view(segment, ElementType.INT).asIntBuffer();
+    }
+    
+    /**
+     * @param segment
+     *            the index of the segment
+     * @return a view of the specified segment (each call returns a new view, which can be used by
+     *         a single thread)
+     * @throws IllegalStateException
+     *             if the elements are not of type {@link ElementType#SHORT}, or if this array has
+     *             been {@link #release() released}
+     */
+    public ShortBuffer getShorts(int segment) throws IllegalStateException
+    {
+        return view(segment, ElementType.SHORT).asShortBuffer();
+    }
+    
+    /**
+     * Releases this array: subsequent reads throw an {@link IllegalStateException}. The file is
+     * not unmapped immediately, since views previously obtained from this array may still be in
+     * use: the mapping is released by the garbage collector once these views are no longer
+     * referenced.
+     */
+    public void release()
+    {
+        released = true;
+    }
+    
+    /**
+     * @return <code>true</code> if this array has been {@link #release() released}
+     */
+    public boolean isReleased()
+    {
+        return released;
+    }
+    
+    private void checkNotReleased() throws IllegalStateException
+    {
+        if (released) throw new IllegalStateException("Cannot read " + file.getPath() + ": the mapped array has been released");
+    }
+    
+    private ByteBuffer view(int segment, ElementType type)
+    {
+        checkNotReleased();
+        
+        if (type != elementType) throw new IllegalStateException("Cannot read elements of type " + elementType + " as " + type);
+        
+        // duplicates lose the byte order
+        return segments[segment].duplicate().order(segments[segment].order());
+    }
+    
+    @Override
+    public String toString()
+    {
+        return file.getPath() + " (" + length + " " + elementType.name().toLowerCase() + " elements)";
+    }
+}
@@ -0,0 +1,288 @@
+package plugins.adufour.vars.util;
+
+/**
+ * Parser converting whitespace-separated lists of numbers into native arrays, e.g. when loading
+ * large array variables from XML files. The input is scanned twice without intermediate strings or
+ * boxed values: once to count the elements, and once to parse them directly into the resulting
+ * primitive array. Plain decimal numbers (e.g. <code>-12.5</code> or <code>3e-4</code>) are parsed
+ * with exact (correctly rounded) arithmetic whenever possible, and any other token (e.g.
+ * <code>NaN</code>, <code>Infinity</code> or numbers with too many digits) is handed over to the
+ * standard JDK parsers, hence results are always identical to {@link Double#parseDouble(String)},
+ * {@link Float#parseFloat(String)} and {@link Integer#parseInt(String)}.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class NumberArrayParser
+{
+    /**
+     * Powers of ten that are exactly representable as doubles
+     */
+    private static final double[] DOUBLE_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    
+    /**
+     * Powers of ten that are exactly representable as floats
+     */
+    private static final float[] FLOAT_POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+    
+    /**
+     * Largest mantissa whose conversion to a double is exact
+     */
+    private static final long MAX_DOUBLE_MANTISSA = 1L << 53;
+    
+    /**
+     * Largest mantissa whose conversion to a float is exact
+     */
+    private static final long MAX_FLOAT_MANTISSA = 1L << 24;
+    
+    private final CharSequence text;
+    
+    private final int length;
+    
+    /**
+     * Start and end (exclusive) of the current token
+     */
+    private int start, end;
+    
+    /**
+     * Decimal decomposition of the current token, i.e. (-1)^negative * mantissa * 10^exponent
+     */
+    private boolean negative;
+    
+    private long mantissa;
+    
+    private int exponent;
+    
+    private NumberArrayParser(CharSequence text)
+    {
+        this.text = text;
+        this.length = text.length();
+    }
+    
+    /**
+     * @param text
+     *            a list of numbers separated by whitespace characters
+     * @return the parsed numbers
+     * @throws NumberFormatException
+     *             if an element cannot be parsed
+     */
+    public static double[] parseDoubles(CharSequence text) throws NumberFormatException
+    {
+        NumberArrayParser parser = new NumberArrayParser(text);
+        
+        double[] array = new double[parser.countTokens()];
+        
+        for (int i = 0; i < array.length; i++)
+        {
+            parser.nextToken();
+            
+            if (parser.decompose() && parser.mantissa <= MAX_DOUBLE_MANTISSA && Math.abs(parser.exponent) < DOUBLE_POWERS_OF_TEN.length)
+            {
+                // both operands are exact, hence the result is correctly rounded
+                double value = parser.mantissa;
+                value = parser.exponent < 0 ? value / DOUBLE_POWERS_OF_TEN[-parser.exponent] : value * DOUBLE_POWERS_OF_TEN[parser.exponent];
+                array[i] = parser.negative ? -value : value;
+            }
+            else
+            {
+                array[i] = Double.parseDouble(parser.token());
+            }
+        }
+        
+        return array;
+    }
+    
+    /**
+     * @param text
+     *            a list of numbers separated by whitespace characters
+     * @return the parsed numbers
+     * @throws NumberFormatException
+     *             if an element cannot be parsed
+     */
+    public static float[] parseFloats(CharSequence text) throws NumberFormatException
+    {
+        NumberArrayParser parser = new NumberArrayParser(text);
+        
+        float[] array = new float[parser.countTokens()];
+        
+        for (int i = 0; i < array.length; i++)
+        {
+            parser.nextToken();
+            
+            if (parser.decompose() && parser.mantissa <= MAX_FLOAT_MANTISSA && Math.abs(parser.exponent) < FLOAT_POWERS_OF_TEN.length)
+            {
+                // both operands are exact, hence the result is correctly rounded
+                float value = parser.mantissa;
+                value = parser.exponent < 0 ? value / FLOAT_POWERS_OF_TEN[-parser.exponent] : value * FLOAT_POWERS_OF_TEN[parser.exponent];
+                array[i] = parser.negative ? -value : value;
+            }
+            else
+            {
+                array[i] = Float.parseFloat(parser.token());
+            }
+        }
+        
+        return array;
+    }
+    
+    /**
+     * @param text
+     *            a list of integers separated by whitespace characters
+     * @return the parsed integers
+     * @throws NumberFormatException
+     *             if an element cannot be parsed
+     */
+    public static int[] parseInts(CharSequence text) throws NumberFormatException
+    {
+        NumberArrayParser parser = new NumberArrayParser(text);
+        
+        int[] array = new int[parser.countTokens()];
+        
+        for (int i = 0; i < array.length; i++)
+        {
+            parser.nextToken();
+            
+            if (parser.decompose() && parser.exponent == 0 && parser.mantissa <= (parser.negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE) && !parser.hasDecimalPoint())
+            {
+                array[i] = (int) (parser.negative ? -parser.mantissa : parser.mantissa);
+            }
+            else
+            {
+                // the JDK parser will either handle or reject the token
+                array[i] = Integer.parseInt(parser.token());
+            }
+        }
+        
+        return array;
+    }
+    
+    /**
+     * @return the number of whitespace-separated tokens in the text
+     */
+    private int countTokens()
+    {
+        int count = 0;
+        boolean inToken = false;
+        
+        for (int i = 0; i < length; i++)
+        {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && !inToken) count++;
+            inToken = !whitespace;
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Moves to the next token (assuming there is one)
+     */
+    private void nextToken()
+    {
+        start = end;
+        while (Character.isWhitespace(text.charAt(start)))
+            start++;
+        
+        end = start + 1;
+        while (end < length && !Character.isWhitespace(text.charAt(end)))
+            end++;
+    }
+    
+    /**
+     * @return the current token as a string (for the JDK parsers)
+     */
+    private String token()
+    {
+        return text.subSequence(start, end).toString();
+    }
+    
+    /**
+     * @return <code>true</code> if the current token contains a decimal point
+     */
+    private boolean hasDecimalPoint()
+    {
+        for (int i = start; i < end; i++)
+            if (text.charAt(i) == '.') return true;
+        
+        return false;
+    }
+    
+    /**
+     * Decomposes the current token into its sign, mantissa and decimal exponent, provided it is a
+     * plain decimal number with at most 18 significant digits
+     * 
+     * @return <code>true</code> if the token was decomposed, <code>false</code> if it should be
+     *         parsed by the JDK instead
+     */
+    private boolean decompose()
+    {
+        int i = start;
+        
+        char c = text.charAt(i);
+        negative = (c == '-');
+        if (c == '-' || c == '+') i++;
+        
+        mantissa = 0;
+        exponent = 0;
+        
+        int significantDigits = 0;
+        boolean hasDigits = false;
+        boolean decimalPart = false;
+        
+        for (; i < end; i++)
+        {
+            c = text.charAt(i);
+            
+            if (c == '.' && !decimalPart)
+            {
+                decimalPart = true;
+                continue;
+            }
+            
+            if (c < '0' || c > '9') break;
+            
+            hasDigits = true;
+            
+            if (mantissa == 0 && c == '0')
+            {
+                // leading zeros are not significant
+                if (decimalPart) exponent--;
+                continue;
+            }
+            
+            if (++significantDigits > 18) return false;
+            
+            mantissa = mantissa * 10 + (c - '0');
+            if (decimalPart) exponent--;
+        }
+        
+        if (!hasDigits) return false;
+        
+        if (i < end && (c == 'e' || c == 'E'))
+        {
+            i++;
+            if (i == end) return false;
+            
+            c = text.charAt(i);
+            boolean negativeExponent = (c == '-');
+            if (c == '-' || c == '+') i++;
+            
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            
+            for (; i < end; i++)
+            {
+                c = text.charAt(i);
+                if (c < '0' || c > '9') return false;
+                if (++exponentDigits > 4) return false;
+                explicitExponent = explicitExponent * 10 + (c - '0');
+            }
+            
+            if (exponentDigits == 0) return false;
+            
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        
+        // trailing characters (e.g. type suffixes) are left to the JDK
+        return i == end;
+    }
+}
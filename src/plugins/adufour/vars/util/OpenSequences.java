@@ -0,0 +1,123 @@
+package plugins.adufour.vars.util;
+
+import icy.gui.main.GlobalSequenceListener;
+import icy.main.Icy;
+import icy.sequence.Sequence;
+
+import java.util.List;
+
+/**
+ * Shared snapshot of the sequences currently opened in the main interface, used by graphical
+ * components that display these sequences (e.g. in a list or combo box) to avoid rebuilding the
+ * list of sequences each time it is read. The snapshot is maintained from the global sequence
+ * events as long as at least one listener is registered via
+ * {@link #addListener(GlobalSequenceListener)}. Such listeners are notified <i>after</i> the
+ * snapshot has been updated, and can therefore rely on it.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class OpenSequences
+{
+    private static final Sequence[] NO_SEQUENCES = new Sequence[0];
+    
+    private static final ListenerList<GlobalSequenceListener> listeners = new ListenerList<GlobalSequenceListener>(GlobalSequenceListener.class);
+    
+    private static final GlobalSequenceListener mainListener = new GlobalSequenceListener()
+    {
+        @Override
+        public void sequenceOpened(Sequence sequence)
+        {
+            update();
+            
+            for (GlobalSequenceListener l : listeners.getListeners())
+                l.sequenceOpened(sequence);
+        }
+        
+        @Override
+        public void sequenceClosed(Sequence sequence)
+        {
+            update();
+            
+            for (GlobalSequenceListener l : listeners.getListeners())
+                l.sequenceClosed(sequence);
+        }
+    };
+    
+    /**
+     * The opened sequences, or <code>null</code> if the snapshot is not maintained (i.e. nobody is
+     * listening)
+     */
+    private static volatile Sequence[] snapshot = null;
+    
+    private OpenSequences()
+    {
+    }
+    
+    /**
+     * @return the sequences currently opened in the main interface (in their order of opening).
+     *         The returned array is shared and <b>must not</b> be modified
+     */
+    public static Sequence[] getSequences()
+    {
+        Sequence[] sequences = snapshot;
+        
+        return sequences != null ? sequences : readSequences();
+    }
+    
+    /**
+     * @param sequence
+     * @return the index of the specified sequence in {@link #getSequences()}, or <code>-1</code>
+     *         if it is not opened
+     */
+    public static int indexOf(Sequence sequence)
+    {
+        Sequence[] sequences = getSequences();
+        
+        for (int i = 0; i < sequences.length; i++)
+            if (sequences[i] == sequence) return i;
+        
+        return -1;
+    }
+    
+    /**
+     * Registers a listener to be notified when a sequence is opened or closed, after the snapshot
+     * has been updated
+     * 
+     * @param listener
+     */
+    public static synchronized void addListener(GlobalSequenceListener listener)
+    {
+        if (!listeners.add(listener) || listeners.size() > 1) return;
+        
+        // first listener: start maintaining the snapshot
+        Icy.getMainInterface().addGlobalSequenceListener(mainListener);
+        snapshot = readSequences();
+    }
+    
+    /**
+     * Unregisters the specified listener
+     * 
+     * @param listener
+     */
+    public static synchronized void removeListener(GlobalSequenceListener listener)
+    {
+        if (!listeners.remove(listener) || !listeners.isEmpty()) return;
+        
+        // last listener: stop maintaining the snapshot
+        Icy.getMainInterface().removeGlobalSequenceListener(mainListener);
+        snapshot = null;
+    }
+    
+    private static synchronized void update()
+    {
+        // events may still be delivered after the last listener has been removed
+        if (!listeners.isEmpty()) snapshot = readSequences();
+    }
+    
+    private static Sequence[] readSequences()
+    {
+        List<Sequence> sequences = Icy.getMainInterface().getSequences();
+        
+        return sequences.isEmpty() ? NO_SEQUENCES : sequences.toArray(new Sequence[sequences.size()]);
+    }
+}
@@ -0,0 +1,359 @@
+package plugins.adufour.vars.util;
+
+/**
+ * Conversion kernels between arrays of different numeric types (e.g. <code>int[]</code> to
+ * <code>double[]</code>), with one specialized loop per source and target type, plus a loop for
+ * arrays of boxed numbers (e.g. the <code>Object[]</code> arrays produced by scripts). Each loop
+ * reads and writes primitives directly, without reflection nor boxing.<br/>
+ * Values are converted as if they were first converted to <code>double</code>, then cast to the
+ * target type (i.e. with the Java narrowing rules), which is consistent with
+ * {@link icy.type.collection.array.Array1DUtil#setValue(Object, int, icy.type.DataType, double)}.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class PrimitiveArrayConverter
+{
+    private PrimitiveArrayConverter()
+    {
+    }
+    
+    /**
+     * Converts the specified array into a new array of the specified primitive type
+     * 
+     * @param source
+     *            the array to convert. Supported types are arrays of <code>byte</code>,
+     *            <code>short</code>, <code>int</code>, <code>long</code>, <code>float</code>,
+     *            <code>double</code>, and arrays of {@link Number} objects (of any declared type,
+     *            e.g. <code>Object[]</code>)
+     * @param targetType
+     *            the component type of the array to create (one of <code>byte</code>,
+     *            <code>short</code>, <code>int</code>, <code>long</code>, <code>float</code> or
+     *            <code>double</code>)
+     * @return the converted array, or <code>null</code> if the conversion is not supported (e.g.
+     *         if both arrays have the same type or are not numeric)
+     * @throws ClassCastException
+     *             if the source is an array of objects containing non-numeric elements
+     * @throws NullPointerException
+     *             if the source is an array of objects containing <code>null</code> elements
+     */
+    public static Object convert(Object source, Class<?> targetType) throws ClassCastException, NullPointerException
+    {
+        if (source instanceof double[]) return fromDoubles((double[]) source, targetType);
+        if (source instanceof int[]) return fromInts((int[]) source, targetType);
+        if (source instanceof float[]) return fromFloats((float[]) source, targetType);
+        if (source instanceof Object[]) return fromObjects((Object[]) source, targetType);
+        if (source instanceof byte[]) return fromBytes((byte[]) source, targetType);
+        if (source instanceof short[]) return fromShorts((short[]) source, targetType);
+        if (source instanceof long[]) return fromLongs((long[]) source, targetType);
+        
+        return null;
+    }
+    
+    private static Object fromBytes(byte[] source, Class<?> targetType)
+    {
+        int n = source.length;
+        
+        if (targetType == short.class)
+        {
+            short[] target = new short[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == int.class)
+        {
+            int[] target = new int[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == long.class)
+        {
+            long[] target = new long[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == float.class)
+        {
+            float[] target = new float[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == double.class)
+        {
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        
+        return null;
+    }
+    
+    private static Object fromShorts(short[] source, Class<?> targetType)
+    {
+        int n = source.length;
+        
+        if (targetType == byte.class)
+        {
+            byte[] target = new byte[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (byte) source[i];
+            return target;
+        }
+        else if (targetType == int.class)
+        {
+            int[] target = new int[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == long.class)
+        {
+            long[] target = new long[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == float.class)
+        {
+            float[] target = new float[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == double.class)
+        {
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        
+        return null;
+    }
+    
+    private static Object fromInts(int[] source, Class<?> targetType)
+    {
+        int n = source.length;
+        
+        if (targetType == byte.class)
+        {
+            byte[] target = new byte[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (byte) source[i];
+            return target;
+        }
+        else if (targetType == short.class)
+        {
+            short[] target = new short[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (short) source[i];
+            return target;
+        }
+        else if (targetType == long.class)
+        {
+            long[] target = new long[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == float.class)
+        {
+            float[] target = new float[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        else if (targetType == double.class)
+        {
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        
+        return null;
+    }
+    
+    private static Object fromLongs(long[] source, Class<?> targetType)
+    {
+        int n = source.length;
+        
+        if (targetType == byte.class)
+        {
+            byte[] target = new byte[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (byte) (double) source[i];
+            return target;
+        }
+        else if (targetType == short.class)
+        {
+            short[] target = new short[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (short) (double) source[i];
+            return target;
+        }
+        else if (targetType == int.class)
+        {
+            int[] target = new int[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (int) (double) source[i];
+            return target;
+        }
+        else if (targetType == float.class)
+        {
+            float[] target = new float[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (float) (double) source[i];
+            return target;
+        }
+        else if (targetType == double.class)
+        {
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (double) source[i];
+            return target;
+        }
+        
+        return null;
+    }
+    
+    private static Object fromFloats(float[] source, Class<?> targetType)
+    {
+        int n = source.length;
+        
+        if (targetType == byte.class)
+        {
+            byte[] target = new byte[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (byte) source[i];
+            return target;
+        }
+        else if (targetType == short.class)
+        {
+            short[] target = new short[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (short) source[i];
+            return target;
+        }
+        else if (targetType == int.class)
+        {
+            int[] target = new int[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (int) source[i];
+            return target;
+        }
+        else if (targetType == long.class)
+        {
+            long[] target = new long[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (long) source[i];
+            return target;
+        }
+        else if (targetType == double.class)
+        {
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++)
+                target[i] = source[i];
+            return target;
+        }
+        
+        return null;
+    }
+    
+    private static Object fromDoubles(double[] source, Class<?> targetType)
+    {
+        int n = source.length;
+        
+        if (targetType == byte.class)
+        {
+            byte[] target = new byte[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (byte) source[i];
+            return target;
+        }
+        else if (targetType == short.class)
+        {
+            short[] target = new short[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (short) source[i];
+            return target;
+        }
+        else if (targetType == int.class)
+        {
+            int[] target = new int[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (int) source[i];
+            return target;
+        }
+        else if (targetType == long.class)
+        {
+            long[] target = new long[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (long) source[i];
+            return target;
+        }
+        else if (targetType == float.class)
+        {
+            float[] target = new float[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (float) source[i];
+            return target;
+        }
+        
+        return null;
+    }
+    
+    private static Object fromObjects(Object[] source, Class<?> targetType)
+    {
+        int n = source.length;
+        
+        if (targetType == byte.class)
+        {
+            byte[] target = new byte[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (byte) ((Number) source[i]).doubleValue();
+            return target;
+        }
+        else if (targetType == short.class)
+        {
+            short[] target = new short[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (short) ((Number) source[i]).doubleValue();
+            return target;
+        }
+        else if (targetType == int.class)
+        {
+            int[] target = new int[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (int) ((Number) source[i]).doubleValue();
+            return target;
+        }
+        else if (targetType == long.class)
+        {
+            long[] target = new long[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (long) ((Number) source[i]).doubleValue();
+            return target;
+        }
+        else if (targetType == float.class)
+        {
+            float[] target = new float[n];
+            for (int i = 0; i < n; i++)
+                target[i] = (float) ((Number) source[i]).doubleValue();
+            return target;
+        }
+        else if (targetType == double.class)
+        {
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++)
+                target[i] = ((Number) source[i]).doubleValue();
+            return target;
+        }
+        
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package plugins.adufour.vars.util;
+
+import plugins.adufour.vars.lang.VarPlugin;
+
+/**
+ * Interface implemented by plug-ins whose instances can be reused several times, provided their
+ * internal state is reset in between
+ * 
+ * @author Alexandre Dufour
+ * @see VarPlugin#releaseInstance(icy.plugin.abstract_.Plugin)
+ */
+public interface Resettable
+{
+    /**
+     * Restores the initial state of this instance, before it is reused
+     */
+    void reset();
+}
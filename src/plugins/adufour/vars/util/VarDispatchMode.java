@@ -0,0 +1,25 @@
+package plugins.adufour.vars.util;
+
+/**
+ * Enumeration of possible ways to notify the listeners of a Variable
+ * 
+ * @author Alexandre Dufour
+ */
+public enum VarDispatchMode
+{
+    /**
+     * Listeners are notified immediately, in the thread changing the variable (default)
+     */
+    SYNCHRONOUS,
+    /**
+     * Listeners are notified asynchronously, in order, of every change. If the listeners cannot
+     * keep up, the thread changing the variable waits for them once the maximum queue depth is
+     * reached (see {@link plugins.adufour.vars.lang.VarDispatcher#setMaxQueueDepth(int)})
+     */
+    ORDERED,
+    /**
+     * Listeners are notified asynchronously and in order, but consecutive value changes that are
+     * still pending are merged into a single event carrying the latest value
+     */
+    CONFLATED
+}
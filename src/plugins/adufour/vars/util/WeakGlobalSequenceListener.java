@@ -0,0 +1,114 @@
+package plugins.adufour.vars.util;
+
+import icy.gui.main.ActiveSequenceListener;
+import icy.gui.main.GlobalSequenceListener;
+import icy.main.Icy;
+import icy.sequence.Sequence;
+import icy.sequence.SequenceEvent;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Global (i.e. application-wide) sequence listener relaying events to another listener referenced
+ * weakly, so that listening to the main interface does not keep closed graphical interfaces alive
+ * for the rest of the session. Active sequence events are relayed if the listener also implements
+ * {@link ActiveSequenceListener}. Once the listener has been collected, this relay unregisters
+ * itself from the main interface upon the next notification.<br/>
+ * <br/>
+ * Note that the caller must keep a strong reference to the listener as long as it should be
+ * notified, as well as to this relay in order to unregister it explicitly.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class WeakGlobalSequenceListener implements GlobalSequenceListener, ActiveSequenceListener
+{
+    private final WeakReference<GlobalSequenceListener> listener;
+    
+    /**
+     * @param listener
+     *            the listener to relay events to
+     */
+    public WeakGlobalSequenceListener(GlobalSequenceListener listener)
+    {
+        this.listener = new WeakReference<GlobalSequenceListener>(listener);
+    }
+    
+    /**
+     * Registers this relay as an active sequence listener of the main interface, and as a global
+     * sequence listener via {@link OpenSequences} (so that the listener can rely on
+     * {@link OpenSequences#getSequences()} when notified)
+     */
+    public void register()
+    {
+        OpenSequences.addListener(this);
+        Icy.getMainInterface().addActiveSequenceListener(this);
+    }
+    
+    /**
+     * Unregisters this relay from the main interface
+     */
+    public void unregister()
+    {
+        OpenSequences.removeListener(this);
+        Icy.getMainInterface().removeActiveSequenceListener(this);
+    }
+    
+    /**
+     * @return the listener to notify, or <code>null</code> if it has been garbage collected (in
+     *         which case this relay unregisters itself)
+     */
+    private GlobalSequenceListener getListener()
+    {
+        GlobalSequenceListener l = listener.get();
+        
+        if (l == null) unregister();
+        
+        return l;
+    }
+    
+    /**
+     * @return the listener to notify of active sequence events, or <code>null</code> if it has
+     *         been garbage collected or does not listen to such events
+     */
+    private ActiveSequenceListener getActiveListener()
+    {
+        GlobalSequenceListener l = getListener();
+        
+        return l instanceof ActiveSequenceListener ? (ActiveSequenceListener) l : null;
+    }
+    
+    @Override
+    public void sequenceOpened(Sequence sequence)
+    {
+        GlobalSequenceListener l = getListener();
+        if (l != null) l.sequenceOpened(sequence);
+    }
+    
+    @Override
+    public void sequenceClosed(Sequence sequence)
+    {
+        GlobalSequenceListener l = getListener();
+        if (l != null) l.sequenceClosed(sequence);
+    }
+    
+    @Override
+    public void sequenceActivated(Sequence sequence)
+    {
+        ActiveSequenceListener l = getActiveListener();
+        if (l != null) l.sequenceActivated(sequence);
+    }
+    
+    @Override
+    public void sequenceDeactivated(Sequence sequence)
+    {
+        ActiveSequenceListener l = getActiveListener();
+        if (l != null) l.sequenceDeactivated(sequence);
+    }
+    
+    @Override
+    public void activeSequenceChanged(SequenceEvent event)
+    {
+        ActiveSequenceListener l = getActiveListener();
+        if (l != null) l.activeSequenceChanged(event);
+    }
+}
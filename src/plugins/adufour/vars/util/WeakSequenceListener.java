@@ -0,0 +1,59 @@
+package plugins.adufour.vars.util;
+
+import icy.sequence.Sequence;
+import icy.sequence.SequenceEvent;
+import icy.sequence.SequenceListener;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * {@link SequenceListener} relaying events to another listener referenced weakly, so that
+ * listening to a {@link Sequence} does not prevent the listener (typically a graphical component)
+ * from being garbage collected. Once the listener has been collected, this relay unregisters itself
+ * from the first sequence that notifies it.<br/>
+ * <br/>
+ * Note that the caller must keep a strong reference to the listener as long as it should be
+ * notified, as well as to this relay in order to unregister it explicitly.
+ * 
+ * @author Alexandre Dufour
+ */
+public final class WeakSequenceListener implements SequenceListener
+{
+    private final WeakReference<SequenceListener> listener;
+    
+    /**
+     * @param listener
+     *            the listener to relay events to
+     */
+    public WeakSequenceListener(SequenceListener listener)
+    {
+        this.listener = new WeakReference<SequenceListener>(listener);
+    }
+    
+    /**
+     * @return the listener events are relayed to, or <code>null</code> if it has been garbage
+     *         collected
+     */
+    public SequenceListener getListener()
+    {
+        return listener.get();
+    }
+    
+    @Override
+    public void sequenceChanged(SequenceEvent sequenceEvent)
+    {
+        SequenceListener l = listener.get();
+        
+        if (l == null) sequenceEvent.getSequence().removeListener(this);
+        else l.sequenceChanged(sequenceEvent);
+    }
+    
+    @Override
+    public void sequenceClosed(Sequence sequence)
+    {
+        SequenceListener l = listener.get();
+        
+        if (l == null) sequence.removeListener(this);
+        else l.sequenceClosed(sequence);
+    }
+}
@@ -0,0 +1,60 @@
+package plugins.adufour.vars.util;
+
+import java.lang.ref.WeakReference;
+
+import plugins.adufour.vars.lang.Var;
+
+/**
+ * Listener relaying events to another listener referenced weakly, so that registering to a
+ * long-lived variable does not prevent the listener (and everything it references, e.g. a
+ * graphical interface) from being garbage collected. Once the listener has been collected, this
+ * relay unregisters itself from the first variable that notifies it.<br/>
+ * <br/>
+ * Note that the caller must keep a strong reference to the listener as long as it should be
+ * notified.
+ * 
+ * @author Alexandre Dufour
+ * @param <T>
+ *            the type of the listened variable
+ * @see Var#addWeakListener(VarListener)
+ */
+public final class WeakVarListener<T> implements VarListener<T>
+{
+    private final WeakReference<VarListener<T>> listener;
+    
+    /**
+     * @param listener
+     *            the listener to relay events to
+     */
+    public WeakVarListener(VarListener<T> listener)
+    {
+        this.listener = new WeakReference<VarListener<T>>(listener);
+    }
+    
+    /**
+     * @return the listener events are relayed to, or <code>null</code> if it has been garbage
+     *         collected
+     */
+    public VarListener<T> getListener()
+    {
+        return listener.get();
+    }
+    
+    @Override
+    public void valueChanged(Var<T> source, T oldValue, T newValue)
+    {
+        VarListener<T> l = listener.get();
+        
+        if (l == null) source.removeListener(this);
+        else l.valueChanged(source, oldValue, newValue);
+    }
+    
+    @Override
+    public void referenceChanged(Var<T> source, Var<? extends T> oldReference, Var<? extends T> newReference)
+    {
+        VarListener<T> l = listener.get();
+        
+        if (l == null) source.removeListener(this);
+        else l.referenceChanged(source, oldReference, newReference);
+    }
+}
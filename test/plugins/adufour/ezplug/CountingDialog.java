@@ -0,0 +1,59 @@
+package plugins.adufour.ezplug;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Interface used by the checks of this package: it counts its re-packs, and is not bound to any
+ * desktop (hence it can be used without displaying anything)
+ * 
+ * @author Alexandre Dufour
+ */
+class CountingDialog extends EzDialog
+{
+    private JPanel contentPane;
+    
+    int            repackCount = 0;
+    
+    CountingDialog()
+    {
+        super("check", false);
+    }
+    
+    @Override
+    public Container getContentPane()
+    {
+        if (contentPane == null) contentPane = new JPanel(new BorderLayout());
+        return contentPane;
+    }
+    
+    @Override
+    protected void setOptimalLocation()
+    {
+    }
+    
+    @Override
+    public void repack(boolean updateParametersPanel)
+    {
+        repackCount++;
+        super.repack(updateParametersPanel);
+    }
+    
+    /**
+     * Waits for all the tasks posted on the event dispatch thread (e.g. pending re-packs)
+     */
+    static void flush() throws Exception
+    {
+        for (int i = 0; i < 2; i++)
+            SwingUtilities.invokeAndWait(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                }
+            });
+    }
+}
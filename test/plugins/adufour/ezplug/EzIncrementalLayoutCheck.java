@@ -0,0 +1,84 @@
+package plugins.adufour.ezplug;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.awt.Component;
+
+/**
+ * Checks that in incremental layout mode (see {@link EzDialog#setIncrementalLayout(boolean)}),
+ * showing or hiding a parameter keeps the Swing components in place and only toggles their
+ * visibility, while the panels are rebuilt on every re-pack otherwise.
+ * 
+ * @author Alexandre Dufour
+ */
+public class EzIncrementalLayoutCheck
+{
+    /**
+     * Group counting how many times its panel is built
+     */
+    static class CountingGroup extends EzGroup
+    {
+        int buildCount = 0;
+        
+        CountingGroup(String name, EzComponent... components)
+        {
+            super(name, components);
+        }
+        
+        @Override
+        protected void buildPanel()
+        {
+            buildCount++;
+            super.buildPanel();
+        }
+    }
+    
+    public static void main(String[] args) throws Exception
+    {
+        for (boolean incremental : new boolean[] { true, false })
+        {
+            CountingDialog dialog = new CountingDialog();
+            dialog.setIncrementalLayout(incremental);
+            
+            EzVarBoolean trigger = new EzVarBoolean("trigger", false);
+            EzVarInteger target = new EzVarInteger("target", 0, 0, 10, 1);
+            CountingGroup group = new CountingGroup("group", trigger, target);
+            dialog.addEzComponent(group);
+            trigger.addVisibilityTriggerTo(target, true);
+            
+            dialog.requestRepack();
+            CountingDialog.flush();
+            int builds = group.buildCount;
+            int componentCount = group.container.getComponentCount();
+            check(builds >= 1, "panel not built");
+            
+            dialog.repackCount = 0;
+            trigger.setValue(true);
+            CountingDialog.flush();
+            check(target.isVisible(), "target not shown");
+            check(dialog.repackCount == 1, dialog.repackCount + " re-packs for a single change");
+            
+            Component editor = (Component) target.getVarEditor().getEditorComponent();
+            check(editor.isShowing() || editor.isVisible(), "editor of the target not visible");
+            
+            trigger.setValue(false);
+            CountingDialog.flush();
+            check(!target.isVisible(), "target not hidden");
+            
+            if (incremental)
+            {
+                check(group.buildCount == builds, "panel rebuilt " + (group.buildCount - builds) + " times");
+                check(group.container.getComponentCount() == componentCount, "components added or removed");
+                check(!editor.isVisible(), "editor of the hidden target still visible");
+            }
+            else
+            {
+                check(group.buildCount > builds, "panel not rebuilt");
+                check(editor.getParent() == null, "editor of the hidden target still in the panel");
+            }
+        }
+        
+        System.out.println("EzIncrementalLayoutCheck: OK");
+        System.exit(0);
+    }
+}
@@ -0,0 +1,104 @@
+package plugins.adufour.ezplug;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Checks that configuring variables (ranges, lists of values, button text) does not create their
+ * editor, that the editors created later on reflect that configuration, and that the editors of a
+ * folded group are only created when it is unfolded.
+ * 
+ * @author Alexandre Dufour
+ */
+public class EzLazyEditorCheck
+{
+    public static void main(String[] args) throws Exception
+    {
+        // range of a spinner
+        EzVarInteger number = new EzVarInteger("number", 5, 0, 10, 1);
+        number.setMinValue(-10);
+        number.setMaxValue(20);
+        number.setStep(2);
+        check(!number.hasVarEditor(), "spinner created by the range setters");
+        check(number.getMinValue() == -10 && number.getMaxValue() == 20 && number.getStep() == 2, "range not updated");
+        
+        SpinnerNumberModel spinnerModel = (SpinnerNumberModel) ((JSpinner) number.getVarEditor().getEditorComponent()).getModel();
+        check(spinnerModel.getMinimum().equals(-10) && spinnerModel.getMaximum().equals(20) && spinnerModel.getStepSize().equals(2), "range not applied to the spinner");
+        
+        EzVarInteger other = new EzVarInteger("other", 5, 0, 10, 1);
+        other.setValues(50, 0, 100, 5);
+        check(!other.hasVarEditor(), "spinner created by setValues");
+        check(other.getValue() == 50 && other.getMaxValue() == 100 && other.getStep() == 5, "values not updated");
+        
+        // a list of values has no range
+        EzVarInteger choice = new EzVarInteger("choice", new Integer[] { 1, 2, 3 }, false);
+        try
+        {
+            choice.setMinValue(-10);
+            check(false, "range of a combo box modified");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // expected
+        }
+        check(!choice.hasVarEditor(), "combo box created by the range setters");
+        
+        // list of values of a combo box
+        EzVarText text = new EzVarText("text", new String[] { "a", "b" }, 0, false);
+        text.setDefaultValues(new String[] { "x", "y", "z" }, 1, false);
+        check(!text.hasVarEditor(), "combo box created by setDefaultValues");
+        check(text.getDefaultValues(new String[0]).length == 3, "values not updated");
+        check(!text.hasVarEditor(), "combo box created by getDefaultValues");
+        check("y".equals(text.getValue()), "default value not selected: " + text.getValue());
+        
+        JComboBox<?> combo = (JComboBox<?>) text.getVarEditor().getEditorComponent();
+        check(combo.getItemCount() == 3 && "y".equals(combo.getSelectedItem()), "values not applied to the combo box");
+        
+        // button text of a file chooser
+        EzVarFile file = new EzVarFile("file", null);
+        file.setButtonText("Choose...");
+        EzVarFolder folder = new EzVarFolder("folder", null);
+        folder.setButtonText("Choose a folder...");
+        check(!file.hasVarEditor() && !folder.hasVarEditor(), "button created by setButtonText");
+        
+        JButton fileButton = (JButton) file.getVarEditor().getEditorComponent();
+        JButton folderButton = (JButton) folder.getVarEditor().getEditorComponent();
+        CountingDialog.flush();
+        check("Choose...".equals(fileButton.getText()), "text not applied to the button: " + fileButton.getText());
+        check("Choose a folder...".equals(folderButton.getText()), "text not applied to the button: " + folderButton.getText());
+        
+        // editors of a folded group are created when the group is unfolded
+        CountingDialog dialog = new CountingDialog();
+        EzVarInteger visible = new EzVarInteger("visible", 0, 0, 10, 1);
+        EzVarInteger advanced = new EzVarInteger("advanced", 0, 0, 10, 1);
+        final EzGroup group = new EzGroup("advanced settings", advanced);
+        group.setFoldedState(true);
+        dialog.addEzComponent(visible);
+        dialog.addEzComponent(group);
+        check(!visible.hasVarEditor() && !advanced.hasVarEditor(), "editors created with the interface");
+        
+        dialog.requestRepack();
+        CountingDialog.flush();
+        check(visible.hasVarEditor(), "editor of a shown variable not created");
+        check(!advanced.hasVarEditor(), "editor of a folded variable created");
+        
+        SwingUtilities.invokeAndWait(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                group.setFoldedState(false);
+            }
+        });
+        CountingDialog.flush();
+        check(advanced.hasVarEditor(), "editor not created when unfolding the group");
+        
+        System.out.println("EzLazyEditorCheck: OK");
+        System.exit(0);
+    }
+}
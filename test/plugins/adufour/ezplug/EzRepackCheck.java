@@ -0,0 +1,75 @@
+package plugins.adufour.ezplug;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Checks that repack requests issued within a single cycle of the event dispatch thread (or while
+ * repacking is held) are merged into a single re-pack of the interface.
+ * 
+ * @author Alexandre Dufour
+ */
+public class EzRepackCheck
+{
+    public static void main(String[] args) throws Exception
+    {
+        final CountingDialog dialog = new CountingDialog();
+        
+        // each parameter shows a label for the value 1 only (so that each change requires a re-pack)
+        final EzVarInteger[] vars = new EzVarInteger[150];
+        for (int i = 0; i < vars.length; i++)
+        {
+            vars[i] = new EzVarInteger("v" + i, 0, 0, 100, 1);
+            EzLabel label = new EzLabel("l" + i);
+            dialog.addEzComponent(vars[i]);
+            dialog.addEzComponent(label);
+            vars[i].addVisibilityTriggerTo(label, 1);
+        }
+        
+        CountingDialog.flush();
+        dialog.repackCount = 0;
+        
+        // changing all the parameters at once (e.g. when loading a protocol) on the EDT
+        SwingUtilities.invokeAndWait(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (EzVarInteger var : vars)
+                    var.setValue(1);
+            }
+        });
+        CountingDialog.flush();
+        check(dialog.repackCount == 1, dialog.repackCount + " re-packs for " + vars.length + " changes");
+        
+        // the same, from another thread
+        dialog.repackCount = 0;
+        for (EzVarInteger var : vars)
+            var.setValue(2);
+        CountingDialog.flush();
+        check(dialog.repackCount >= 1 && dialog.repackCount < vars.length, dialog.repackCount + " re-packs for " + vars.length + " changes");
+        
+        // requests are postponed while repacking is held
+        dialog.repackCount = 0;
+        dialog.holdRepack();
+        dialog.holdRepack();
+        for (int i = 0; i < 10; i++)
+            dialog.requestRepack();
+        dialog.releaseRepack();
+        CountingDialog.flush();
+        check(dialog.repackCount == 0, "re-packed while held");
+        
+        dialog.releaseRepack();
+        CountingDialog.flush();
+        check(dialog.repackCount == 1, dialog.repackCount + " re-packs after the release");
+        
+        // a request issued after a re-pack is not lost
+        dialog.requestRepack();
+        CountingDialog.flush();
+        check(dialog.repackCount == 2, "request lost after a re-pack");
+        
+        System.out.println("EzRepackCheck: OK");
+        System.exit(0);
+    }
+}
@@ -0,0 +1,68 @@
+package plugins.adufour.ezplug;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+/**
+ * Checks that visibility triggers are matched by equality (not identity), that trigger chains are
+ * updated consistently (including when the trigger itself is hidden), and that each value change
+ * results in a single re-pack of the interface, or none if no visibility state has changed.
+ * 
+ * @author Alexandre Dufour
+ */
+public class EzVisibilityCheck
+{
+    public static void main(String[] args) throws Exception
+    {
+        CountingDialog dialog = new CountingDialog();
+        
+        EzVarInteger v = new EzVarInteger("v", 0, 0, 5000, 1);
+        EzVarInteger w = new EzVarInteger("w", 0, 0, 5000, 1);
+        EzLabel l = new EzLabel("l");
+        EzLabel m = new EzLabel("m");
+        
+        dialog.addEzComponent(v);
+        dialog.addEzComponent(w);
+        dialog.addEzComponent(l);
+        dialog.addEzComponent(m);
+        
+        // w is shown for 1000 or 2000, l follows w, m follows v
+        v.addVisibilityTriggerTo(w, 1000, 2000);
+        w.addVisibilityTriggerTo(l);
+        v.addVisibilityTriggerTo(m);
+        checkVisibility(w, l, m, false, false, true);
+        
+        CountingDialog.flush();
+        dialog.repackCount = 0;
+        
+        // a distinct (but equal) instance of a trigger value
+        v.setValue(new Integer(1000));
+        checkVisibility(w, l, m, true, true, true);
+        CountingDialog.flush();
+        check(dialog.repackCount == 1, dialog.repackCount + " re-packs for a single change");
+        
+        // a value that does not change the visibility of any target
+        dialog.repackCount = 0;
+        v.setValue(2000);
+        checkVisibility(w, l, m, true, true, true);
+        CountingDialog.flush();
+        check(dialog.repackCount == 0, dialog.repackCount + " re-packs without visibility change");
+        
+        // hiding the trigger hides the whole chain
+        v.setVisible(false);
+        checkVisibility(w, l, m, false, false, false);
+        v.setVisible(true);
+        checkVisibility(w, l, m, true, true, true);
+        
+        v.setValue(3000);
+        checkVisibility(w, l, m, false, false, true);
+        
+        System.out.println("EzVisibilityCheck: OK");
+        System.exit(0);
+    }
+    
+    private static void checkVisibility(EzComponent w, EzComponent l, EzComponent m, boolean wVisible, boolean lVisible, boolean mVisible)
+    {
+        String state = "w=" + w.isVisible() + " l=" + l.isVisible() + " m=" + m.isVisible();
+        check(w.isVisible() == wVisible && l.isVisible() == lVisible && m.isVisible() == mVisible, "unexpected visibility: " + state);
+    }
+}
@@ -0,0 +1,137 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import plugins.adufour.vars.util.DoubleVarListener;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks that variables linked to a variable of a different numeric type (e.g. a {@link VarDouble}
+ * pointing to a {@link VarInteger}) are notified with values of their own type when the source
+ * changes, and read values converted by each variable along the reference chain.
+ * 
+ * @author Alexandre Dufour
+ */
+public class MixedLinkCheck
+{
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void main(String[] args)
+    {
+        VarInteger source = new VarInteger("source", 1);
+        VarDouble referrer = new VarDouble("referrer", 0.0);
+        
+        final double[] received = { Double.NaN, Double.NaN };
+        final Object[] boxed = new Object[2];
+        
+        referrer.addListener(new DoubleVarListener()
+        {
+            @Override
+            public void valueChanged(VarDouble var, double oldValue, double newValue)
+            {
+                received[0] = oldValue;
+                received[1] = newValue;
+            }
+        });
+        
+        referrer.addListener(new VarListener<Double>()
+        {
+            @Override
+            public void valueChanged(Var<Double> var, Double oldValue, Double newValue)
+            {
+                boxed[0] = oldValue;
+                boxed[1] = newValue;
+            }
+            
+            @Override
+            public void referenceChanged(Var<Double> var, Var<? extends Double> oldReference, Var<? extends Double> newReference)
+            {
+            }
+        });
+        
+        ((Var) referrer).setReference(source);
+        
+        // a counter pointing to the integer variable
+        VarLongAdder counter = new VarLongAdder("counter");
+        final Object[] counted = new Object[1];
+        counter.addListener(new VarListener<Long>()
+        {
+            @Override
+            public void valueChanged(Var<Long> var, Long oldValue, Long newValue)
+            {
+                counted[0] = newValue;
+            }
+            
+            @Override
+            public void referenceChanged(Var<Long> var, Var<? extends Long> oldReference, Var<? extends Long> newReference)
+            {
+            }
+        });
+        ((Var) counter).setReference(source);
+        
+        source.setValue(2);
+        
+        check(received[0] == 1.0 && received[1] == 2.0, "primitive listener received " + received[0] + " -> " + received[1]);
+        check(referrer.getValue() == 2.0, "referrer value is " + referrer.getValue());
+        
+        // regular listeners receive values of the type of their own variable
+        check(Double.valueOf(1.0).equals(boxed[0]) && Double.valueOf(2.0).equals(boxed[1]), "listener received " + boxed[0] + " -> " + boxed[1]);
+        check(Long.valueOf(2).equals(counted[0]), "counter listener received " + counted[0]);
+        
+        // a decimal value truncated by an integer variable, then read back by a double variable
+        VarDouble decimal = new VarDouble("decimal", 0.0);
+        VarInteger truncated = new VarInteger("truncated", 0);
+        VarDouble widened = new VarDouble("widened", 0.0);
+        
+        ((Var) truncated).setReference(decimal);
+        ((Var) widened).setReference(truncated);
+        
+        final Object[] truncatedEvent = new Object[1];
+        final Object[] widenedEvent = new Object[1];
+        
+        truncated.addListener(new VarListener<Integer>()
+        {
+            @Override
+            public void valueChanged(Var<Integer> var, Integer oldValue, Integer newValue)
+            {
+                truncatedEvent[0] = newValue;
+            }
+            
+            @Override
+            public void referenceChanged(Var<Integer> var, Var<? extends Integer> oldReference, Var<? extends Integer> newReference)
+            {
+            }
+        });
+        widened.addListener(new VarListener<Double>()
+        {
+            @Override
+            public void valueChanged(Var<Double> var, Double oldValue, Double newValue)
+            {
+                widenedEvent[0] = newValue;
+            }
+            
+            @Override
+            public void referenceChanged(Var<Double> var, Var<? extends Double> oldReference, Var<? extends Double> newReference)
+            {
+            }
+        });
+        
+        decimal.setValue(2.7);
+        
+        check(Integer.valueOf(2).equals(truncatedEvent[0]), "truncated listener received " + truncatedEvent[0]);
+        check(Double.valueOf(2.0).equals(widenedEvent[0]), "widened listener received " + widenedEvent[0]);
+        check(truncated.getValue() == 2, "truncated value is " + truncated.getValue());
+        
+        // reading through the chain must not bypass the truncation of the intermediate variable
+        check(widened.getValue() == 2.0, "widened value is " + widened.getValue());
+        check(widened.getDouble() == 2.0, "widened primitive value is " + widened.getDouble());
+        
+        // re-linking the middle of the chain invalidates the cached source of its referrers
+        VarDouble other = new VarDouble("other", 5.9);
+        ((Var) truncated).setReference(other);
+        
+        check(widened.getSource() == other, "widened source is " + widened.getSource().getName());
+        check(widened.getValue() == 5.0, "widened value after re-link is " + widened.getValue());
+        
+        System.out.println("MixedLinkCheck: OK");
+    }
+}
@@ -0,0 +1,102 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import plugins.adufour.vars.util.VarDispatchMode;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks that changes of a {@link VarDoubleArrayOffHeap} made during a batch are notified on
+ * commit, even when the previous data is indistinguishable from the internal placeholder used to
+ * defer the copy of the data, that buffers remain readable after the variable is released, and that
+ * pending changes are copied once for asynchronous listeners.
+ * 
+ * @author Alexandre Dufour
+ */
+public class OffHeapBatchCheck
+{
+    public static void main(String[] args)
+    {
+        VarDoubleArrayOffHeap var = new VarDoubleArrayOffHeap("var", 1, null);
+        var.setValue(new double[] { Double.NaN });
+        
+        final List<double[]> oldValues = new ArrayList<double[]>();
+        final List<double[]> newValues = new ArrayList<double[]>();
+        var.addListener(new VarListener<double[]>()
+        {
+            @Override
+            public void valueChanged(Var<double[]> source, double[] oldValue, double[] newValue)
+            {
+                oldValues.add(oldValue);
+                newValues.add(newValue);
+            }
+            
+            @Override
+            public void referenceChanged(Var<double[]> source, Var<? extends double[]> oldReference, Var<? extends double[]> newReference)
+            {
+            }
+        });
+        
+        // the previous value {NaN} must not be mistaken for the placeholder
+        Var.beginBatch();
+        var.getBuffer().put(0, 2.0);
+        var.contentsChanged();
+        Var.commitBatch();
+        
+        check(newValues.size() == 1, newValues.size() + " events fired");
+        check(Double.isNaN(oldValues.get(0)[0]), "unexpected old value: " + oldValues.get(0)[0]);
+        check(newValues.get(0)[0] == 2.0, "unexpected new value: " + newValues.get(0)[0]);
+        
+        // the same, outside of a batch
+        var.getBuffer().put(0, Double.NaN);
+        var.contentsChanged();
+        check(newValues.size() == 2, newValues.size() + " events fired");
+        check(Double.isNaN(newValues.get(1)[0]), "unexpected new value: " + newValues.get(1)[0]);
+        
+        // a buffer obtained before the release remains usable
+        DoubleBuffer buffer = var.getBuffer();
+        buffer.put(0, 3.0);
+        var.release();
+        check(var.getLength() == 0, "variable not emptied");
+        check(newValues.size() == 3 && newValues.get(2).length == 0, "release not notified");
+        System.gc();
+        check(buffer.get(0) == 3.0, "buffer modified after release");
+        
+        // memory accessed by a task is only freed once the task returns
+        final VarDoubleArrayOffHeap leased = new VarDoubleArrayOffHeap("leased", 2, null);
+        final double[] read = new double[1];
+        leased.accessBuffer(new Consumer<DoubleBuffer>()
+        {
+            @Override
+            public void accept(DoubleBuffer data)
+            {
+                data.put(1, 4.0);
+                leased.release();
+                read[0] = data.get(1);
+            }
+        });
+        check(read[0] == 4.0, "memory freed while in use");
+        check(leased.getLength() == 0, "variable not emptied");
+        
+        // asynchronous listeners receive pending changes at once, with a single copy
+        VarDispatcherCheck.ManualExecutor executor = new VarDispatcherCheck.ManualExecutor();
+        var.allocate(4);
+        var.setDispatchMode(VarDispatchMode.ORDERED, executor);
+        newValues.clear();
+        for (int i = 0; i < 4; i++)
+        {
+            var.getBuffer().put(i, i);
+            var.contentsChanged();
+        }
+        check(var.getDispatcher().getQueueDepth() == 1, "changes not merged");
+        executor.runAll();
+        check(newValues.size() == 1 && newValues.get(0)[3] == 3.0, "unexpected events: " + newValues.size());
+        
+        System.out.println("OffHeapBatchCheck: OK");
+    }
+}
@@ -0,0 +1,66 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks that a listener failing when a batch update is committed does not prevent the other
+ * modified variables from being notified, and that its exception is still reported.
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarBatchCheck
+{
+    public static void main(String[] args)
+    {
+        VarInteger faulty = new VarInteger("faulty", 0);
+        VarInteger healthy = new VarInteger("healthy", 0);
+        
+        faulty.addListener(new VarListener<Integer>()
+        {
+            @Override
+            public void valueChanged(Var<Integer> source, Integer oldValue, Integer newValue)
+            {
+                throw new IllegalStateException("expected failure");
+            }
+            
+            @Override
+            public void referenceChanged(Var<Integer> source, Var<? extends Integer> oldReference, Var<? extends Integer> newReference)
+            {
+            }
+        });
+        
+        final Object[] received = new Object[1];
+        healthy.addListener(new VarListener<Integer>()
+        {
+            @Override
+            public void valueChanged(Var<Integer> source, Integer oldValue, Integer newValue)
+            {
+                received[0] = newValue;
+            }
+            
+            @Override
+            public void referenceChanged(Var<Integer> source, Var<? extends Integer> oldReference, Var<? extends Integer> newReference)
+            {
+            }
+        });
+        
+        Var.beginBatch();
+        faulty.setValue(1);
+        healthy.setValue(2);
+        try
+        {
+            Var.commitBatch();
+            check(false, "listener failure not reported");
+        }
+        catch (IllegalStateException e)
+        {
+            check("expected failure".equals(e.getMessage()), e.getMessage());
+        }
+        check(Integer.valueOf(2).equals(received[0]), "variable not notified after a faulty one");
+        check(!Var.isBatchUpdating(), "batch still running");
+        
+        System.out.println("VarBatchCheck: OK");
+    }
+}
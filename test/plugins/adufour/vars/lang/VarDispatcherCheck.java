@@ -0,0 +1,201 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import plugins.adufour.vars.util.VarDispatchMode;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks the asynchronous dispatch modes of {@link Var}: in-order delivery of every change in
+ * {@link VarDispatchMode#ORDERED} mode (waiting for the listeners at the maximum queue depth),
+ * conflation in {@link VarDispatchMode#CONFLATED} mode, and isolation of faulty listeners.
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarDispatcherCheck
+{
+    /**
+     * Executor holding its tasks until {@link #runAll()} is called
+     */
+    static class ManualExecutor implements Executor
+    {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        
+        @Override
+        public void execute(Runnable command)
+        {
+            tasks.add(command);
+        }
+        
+        void runAll()
+        {
+            while (!tasks.isEmpty())
+                tasks.remove(0).run();
+        }
+    }
+    
+    static class RecordingListener implements VarListener<Integer>
+    {
+        final List<Integer> values = new ArrayList<Integer>();
+        
+        @Override
+        public void valueChanged(Var<Integer> source, Integer oldValue, Integer newValue)
+        {
+            values.add(newValue);
+        }
+        
+        @Override
+        public void referenceChanged(Var<Integer> source, Var<? extends Integer> oldReference, Var<? extends Integer> newReference)
+        {
+        }
+    }
+    
+    public static void main(String[] args) throws InterruptedException
+    {
+        // ordered: every change is delivered, in order
+        ManualExecutor executor = new ManualExecutor();
+        VarInteger var = new VarInteger("var", 0);
+        var.setDispatchMode(VarDispatchMode.ORDERED, executor);
+        RecordingListener listener = new RecordingListener();
+        var.addListener(listener);
+        
+        for (int i = 1; i <= 10; i++)
+            var.setValue(i);
+        check(listener.values.isEmpty(), "listener notified synchronously");
+        check(var.getDispatcher().getQueueDepth() == 10, "unexpected queue depth");
+        
+        executor.runAll();
+        for (int i = 0; i < 10; i++)
+            check(listener.values.get(i) == i + 1, "unexpected order: " + listener.values);
+        check(var.getDispatcher().getQueueDepth() == 0, "events left in the queue");
+        
+        // ordered, full queue: the thread changing the variable waits for the listeners
+        final VarInteger bounded = new VarInteger("bounded", 0);
+        bounded.setDispatchMode(VarDispatchMode.ORDERED, new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                Thread thread = new Thread(command);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        });
+        bounded.getDispatcher().setMaxQueueDepth(3);
+        
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(10);
+        final RecordingListener gated = new RecordingListener()
+        {
+            @Override
+            public void valueChanged(Var<Integer> source, Integer oldValue, Integer newValue)
+            {
+                try
+                {
+                    gate.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                super.valueChanged(source, oldValue, newValue);
+                delivered.countDown();
+            }
+        };
+        bounded.addListener(gated);
+        
+        Thread producer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 1; i <= 10; i++)
+                    bounded.setValue(i);
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+        
+        // the first event is held by the listener, the next three fill the queue
+        long deadline = System.currentTimeMillis() + 5000;
+        while (producer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        check(producer.getState() == Thread.State.WAITING, "producer not waiting for the listeners");
+        check(bounded.getDispatcher().getQueueDepth() == 3, "queue depth not bounded");
+        
+        gate.countDown();
+        check(delivered.await(5, TimeUnit.SECONDS), "events not delivered");
+        producer.join(5000);
+        check(gated.values.toString().equals("[1, 2, 3, 4, 5, 6, 7, 8, 9, 10]"), "unexpected values: " + gated.values);
+        check(bounded.getDispatcher().getConflatedCount() == 0, "events conflated in ordered mode");
+        
+        // conflated: only the latest value is delivered
+        executor = new ManualExecutor();
+        var = new VarInteger("var", 0);
+        var.setDispatchMode(VarDispatchMode.CONFLATED, executor);
+        listener = new RecordingListener();
+        var.addListener(listener);
+        
+        for (int i = 1; i <= 10; i++)
+            var.setValue(i);
+        executor.runAll();
+        check(listener.values.toString().equals("[10]"), "unexpected values: " + listener.values);
+        
+        // a faulty listener must not prevent the notification of the others
+        executor = new ManualExecutor();
+        var = new VarInteger("var", 0);
+        var.setDispatchMode(VarDispatchMode.ORDERED, executor);
+        var.addListener(new RecordingListener()
+        {
+            @Override
+            public void valueChanged(Var<Integer> source, Integer oldValue, Integer newValue)
+            {
+                throw new IllegalStateException("expected failure (ignore this trace)");
+            }
+        });
+        listener = new RecordingListener();
+        var.addListener(listener);
+        var.setValue(1);
+        executor.runAll();
+        check(listener.values.size() == 1, "listener not notified after a faulty one");
+        
+        // an error escaping a listener must not stall the dispatcher
+        executor = new ManualExecutor();
+        var = new VarInteger("var", 0);
+        var.setDispatchMode(VarDispatchMode.ORDERED, executor);
+        final boolean[] fail = { true };
+        var.addListener(new RecordingListener()
+        {
+            @Override
+            public void valueChanged(Var<Integer> source, Integer oldValue, Integer newValue)
+            {
+                if (fail[0]) throw new AssertionError("expected failure");
+            }
+        });
+        var.setValue(1);
+        try
+        {
+            executor.runAll();
+            check(false, "error not propagated");
+        }
+        catch (AssertionError e)
+        {
+            check("expected failure".equals(e.getMessage()), e.getMessage());
+        }
+        fail[0] = false;
+        listener = new RecordingListener();
+        var.addListener(listener);
+        var.setValue(2);
+        check(executor.tasks.size() == 1, "delivery not rescheduled");
+        executor.runAll();
+        check(listener.values.toString().equals("[2]"), "unexpected values: " + listener.values);
+        
+        System.out.println("VarDispatcherCheck: OK");
+    }
+}
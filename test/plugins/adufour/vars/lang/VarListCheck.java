@@ -0,0 +1,81 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import plugins.adufour.vars.lang.VarDispatcherCheck.ManualExecutor;
+import plugins.adufour.vars.util.VarDispatchMode;
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks that {@link VarList} notifies synchronous listeners of each addition, and that
+ * additions still pending delivery to asynchronous listeners are notified once, with a single
+ * snapshot of the list.
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarListCheck
+{
+    static class RecordingListener implements VarListener<String[]>
+    {
+        final List<String[]> oldValues = new ArrayList<String[]>();
+        
+        final List<String[]> newValues = new ArrayList<String[]>();
+        
+        @Override
+        public void valueChanged(Var<String[]> source, String[] oldValue, String[] newValue)
+        {
+            oldValues.add(oldValue);
+            newValues.add(newValue);
+        }
+        
+        @Override
+        public void referenceChanged(Var<String[]> source, Var<? extends String[]> oldReference, Var<? extends String[]> newReference)
+        {
+        }
+    }
+    
+    public static void main(String[] args)
+    {
+        // synchronous listeners receive a snapshot per addition
+        VarList<String> list = new VarList<String>("list", String[].class);
+        RecordingListener listener = new RecordingListener();
+        list.addListener(listener);
+        
+        list.add("a");
+        list.add("b");
+        check(listener.newValues.size() == 2, "unexpected event count: " + listener.newValues.size());
+        check(listener.newValues.get(1).length == 2, "unexpected snapshot length");
+        check(listener.oldValues.get(1) == listener.newValues.get(0), "old value is not the previous snapshot");
+        
+        // asynchronous listeners receive pending additions at once
+        ManualExecutor executor = new ManualExecutor();
+        list.setDispatchMode(VarDispatchMode.ORDERED, executor);
+        listener.oldValues.clear();
+        listener.newValues.clear();
+        
+        for (int i = 0; i < 1000; i++)
+            list.add("element " + i);
+        check(list.getDispatcher().getQueueDepth() == 1, "additions not merged: " + list.getDispatcher().getQueueDepth());
+        
+        executor.runAll();
+        check(listener.newValues.size() == 1, "unexpected event count: " + listener.newValues.size());
+        check(listener.oldValues.get(0).length == 2, "unexpected old value length");
+        check(listener.newValues.get(0).length == 1002, "unexpected new value length");
+        check(listener.newValues.get(0) == list.getValue(), "snapshot not shared with getValue()");
+        
+        // a value set in between splits the pending additions
+        list.add("x");
+        list.setValue(new String[] { "y" });
+        list.add("z");
+        executor.runAll();
+        check(listener.newValues.size() == 4, "unexpected event count: " + listener.newValues.size());
+        check(listener.newValues.get(1).length == 1003, "addition resolved after the value was set");
+        check(listener.newValues.get(2).length == 1 && listener.newValues.get(2)[0].equals("y"), "set value not delivered");
+        check(listener.newValues.get(3).length == 2, "unexpected snapshot length");
+        
+        System.out.println("VarListCheck: OK");
+    }
+}
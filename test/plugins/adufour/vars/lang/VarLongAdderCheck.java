@@ -0,0 +1,85 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks that {@link VarLongAdder} publishes the sum of concurrent increments, and notifies its
+ * listeners without holding its lock (i.e. a listener waiting for another thread updating the
+ * counter does not dead-lock).
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarLongAdderCheck
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        final VarLongAdder counter = new VarLongAdder("counter");
+        counter.setPublishInterval(0);
+        
+        Thread[] workers = new Thread[4];
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int j = 0; j < 10000; j++)
+                        counter.increment();
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers)
+            worker.join();
+        counter.publish();
+        check(counter.getLong() == 40000, "unexpected sum: " + counter.getLong());
+        
+        // the listener waits for another thread resetting the counter
+        final boolean[] done = { false };
+        counter.addListener(new VarListener<Long>()
+        {
+            @Override
+            public void valueChanged(Var<Long> source, Long oldValue, Long newValue)
+            {
+                if (newValue != 40001) return;
+                
+                Thread other = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        counter.reset();
+                    }
+                });
+                other.start();
+                
+                try
+                {
+                    other.join(5000);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                
+                done[0] = !other.isAlive();
+            }
+            
+            @Override
+            public void referenceChanged(Var<Long> source, Var<? extends Long> oldReference, Var<? extends Long> newReference)
+            {
+            }
+        });
+        
+        long version = counter.getVersion();
+        counter.increment();
+        check(done[0], "listener dead-locked with the counter");
+        check(counter.getLong() == 0, "counter not reset: " + counter.getLong());
+        check(counter.getVersion() > version, "version not updated on publication");
+        
+        System.out.println("VarLongAdderCheck: OK");
+    }
+}
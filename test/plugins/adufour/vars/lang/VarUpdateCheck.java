@@ -0,0 +1,61 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.util.function.UnaryOperator;
+
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks that {@link Var#updateAndGet(UnaryOperator)} reports the value actually stored by
+ * variables that cannot hold <code>null</code>, both to the caller and to the listeners.
+ * 
+ * @author Alexandre Dufour
+ */
+public class VarUpdateCheck
+{
+    public static void main(String[] args)
+    {
+        VarDouble var = new VarDouble("var", 1.5);
+        var.setValue(2.5);
+        
+        final Object[] received = new Object[1];
+        final int[] events = new int[1];
+        var.addListener(new VarListener<Double>()
+        {
+            @Override
+            public void valueChanged(Var<Double> source, Double oldValue, Double newValue)
+            {
+                received[0] = newValue;
+                events[0]++;
+            }
+            
+            @Override
+            public void referenceChanged(Var<Double> source, Var<? extends Double> oldReference, Var<? extends Double> newReference)
+            {
+            }
+        });
+        
+        UnaryOperator<Double> reset = new UnaryOperator<Double>()
+        {
+            @Override
+            public Double apply(Double value)
+            {
+                return null;
+            }
+        };
+        
+        // a null value resets the variable to its default value
+        Double result = var.updateAndGet(reset);
+        check(Double.valueOf(1.5).equals(result), "unexpected result: " + result);
+        check(Double.valueOf(1.5).equals(received[0]), "listener received " + received[0]);
+        check(var.getDouble() == 1.5, "unexpected value: " + var.getDouble());
+        
+        // resetting a variable already holding its default value changes nothing
+        result = var.updateAndGet(reset);
+        check(Double.valueOf(1.5).equals(result), "unexpected result: " + result);
+        check(events[0] == 1, events[0] + " events fired");
+        
+        System.out.println("VarUpdateCheck: OK");
+    }
+}
@@ -0,0 +1,69 @@
+package plugins.adufour.vars.lang;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.lang.ref.WeakReference;
+
+import plugins.adufour.vars.util.VarListener;
+
+/**
+ * Checks that listeners registered via {@link Var#addWeakListener(VarListener)} are notified as
+ * long as they are referenced, can be removed explicitly, and do not prevent their collection
+ * (i.e. they are unregistered once collected).
+ * 
+ * @author Alexandre Dufour
+ */
+public class WeakListenerCheck
+{
+    static class CountingListener implements VarListener<Integer>
+    {
+        int count = 0;
+        
+        @Override
+        public void valueChanged(Var<Integer> source, Integer oldValue, Integer newValue)
+        {
+            count++;
+        }
+        
+        @Override
+        public void referenceChanged(Var<Integer> source, Var<? extends Integer> oldReference, Var<? extends Integer> newReference)
+        {
+        }
+    }
+    
+    public static void main(String[] args) throws InterruptedException
+    {
+        VarInteger var = new VarInteger("var", 0);
+        
+        // a referenced listener is notified, and can be removed explicitly
+        CountingListener listener = new CountingListener();
+        var.addWeakListener(listener);
+        var.setValue(1);
+        check(listener.count == 1, "listener notified " + listener.count + " times");
+        
+        var.removeListener(listener);
+        check(var.listenerList.isEmpty(), "listener not removed");
+        
+        // many short-lived listeners (e.g. editors of closed interfaces) must not leak
+        WeakReference<CountingListener> last = null;
+        for (int i = 0; i < 1000; i++)
+        {
+            CountingListener shortLived = new CountingListener();
+            var.addWeakListener(shortLived);
+            last = new WeakReference<CountingListener>(shortLived);
+        }
+        
+        for (int i = 0; i < 50 && last.get() != null; i++)
+        {
+            System.gc();
+            Thread.sleep(20);
+        }
+        check(last.get() == null, "listener was not collected");
+        
+        // collected listeners are unregistered on the next event
+        var.setValue(2);
+        check(var.listenerList.isEmpty(), var.listenerList.size() + " collected listeners still registered");
+        
+        System.out.println("WeakListenerCheck: OK");
+    }
+}
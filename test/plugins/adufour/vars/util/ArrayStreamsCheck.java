@@ -0,0 +1,56 @@
+package plugins.adufour.vars.util;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Checks that the parallel loops of {@link ArrayStreams} process every element, and stop early
+ * when their cancellation condition is met or when the calling thread is interrupted.
+ * 
+ * @author Alexandre Dufour
+ */
+public class ArrayStreamsCheck
+{
+    public static void main(String[] args)
+    {
+        int[] array = new int[1 << 22];
+        
+        final AtomicInteger processed = new AtomicInteger();
+        IntConsumer counter = new IntConsumer()
+        {
+            @Override
+            public void accept(int value)
+            {
+                processed.incrementAndGet();
+            }
+        };
+        
+        check(ArrayStreams.forEachParallel(array, counter), "processing reported as cancelled");
+        check(processed.get() == array.length, processed.get() + " elements processed");
+        
+        // an explicit condition, raised after a few elements
+        processed.set(0);
+        boolean completed = ArrayStreams.forEachParallel(array, counter, new BooleanSupplier()
+        {
+            @Override
+            public boolean getAsBoolean()
+            {
+                return processed.get() >= 10000;
+            }
+        });
+        check(!completed, "cancellation not reported");
+        check(processed.get() < array.length, "cancellation ignored");
+        
+        // an interrupted thread does not process anything, and remains interrupted
+        processed.set(0);
+        Thread.currentThread().interrupt();
+        completed = ArrayStreams.forEachParallel(array, counter);
+        check(Thread.interrupted(), "interrupted flag cleared");
+        check(!completed && processed.get() == 0, processed.get() + " elements processed");
+        
+        System.out.println("ArrayStreamsCheck: OK");
+    }
+}
@@ -0,0 +1,27 @@
+package plugins.adufour.vars.util;
+
+/**
+ * Helper shared by the checks of the test source folder, which are plain <code>main</code>
+ * programs (no test framework is available to the plug-in)
+ * 
+ * @author Alexandre Dufour
+ */
+public final class Checks
+{
+    private Checks()
+    {
+    }
+    
+    /**
+     * @param condition
+     *            the condition to check
+     * @param message
+     *            the message describing the failure
+     * @throws AssertionError
+     *             if the condition is <code>false</code>
+     */
+    public static void check(boolean condition, String message) throws AssertionError
+    {
+        if (!condition) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,58 @@
+package plugins.adufour.vars.util;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.util.List;
+
+/**
+ * Checks that the {@link List} view of a {@link ListenerList} applies its modifications to the
+ * registry, and rejects duplicates as specified by the {@link List} interface.
+ * 
+ * @author Alexandre Dufour
+ */
+public class ListenerListCheck
+{
+    public static void main(String[] args)
+    {
+        ListenerList<Runnable> registry = new ListenerList<Runnable>(Runnable.class);
+        List<Runnable> view = registry.asList();
+        
+        Runnable a = new Thread("a");
+        Runnable b = new Thread("b");
+        Runnable c = new Thread("c");
+        
+        check(view.add(a), "listener not added");
+        check(!view.add(a), "duplicate reported as added");
+        check(view.size() == 1 && registry.size() == 1, "duplicate added: " + view.size());
+        
+        view.add(0, b);
+        check(registry.getListeners()[0] == b && registry.getListeners()[1] == a, "listener not inserted");
+        
+        try
+        {
+            view.add(0, a);
+            check(false, "duplicate inserted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            check(view.size() == 2, "registry modified by a rejected insertion");
+        }
+        
+        try
+        {
+            view.set(0, a);
+            check(false, "duplicate set");
+        }
+        catch (IllegalArgumentException e)
+        {
+            check(view.get(0) == b, "registry modified by a rejected replacement");
+        }
+        
+        check(view.set(0, b) == b, "listener not replaced by itself");
+        check(view.set(0, c) == b && registry.contains(c) && !registry.contains(b), "listener not replaced");
+        
+        check(view.remove(a) && registry.size() == 1, "listener not removed");
+        
+        System.out.println("ListenerListCheck: OK");
+    }
+}
@@ -0,0 +1,66 @@
+package plugins.adufour.vars.util;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import plugins.adufour.vars.util.MappedArray.ElementType;
+
+/**
+ * Checks that a {@link MappedArray} reads the elements of a file, refuses new reads once released,
+ * and that views obtained before the release remain readable.
+ * 
+ * @author Alexandre Dufour
+ */
+public class MappedArrayCheck
+{
+    public static void main(String[] args) throws IOException
+    {
+        File file = File.createTempFile("MappedArrayCheck", ".raw");
+        file.deleteOnExit();
+        
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try
+        {
+            // 8-byte header, then big-endian doubles
+            out.writeLong(-1);
+            for (int i = 0; i < 100; i++)
+                out.writeDouble(i * 0.5);
+        }
+        finally
+        {
+            out.close();
+        }
+        
+        MappedArray array = MappedArray.map(file, ElementType.DOUBLE, ByteOrder.BIG_ENDIAN, 8, -1);
+        check(array.length() == 100, "unexpected length: " + array.length());
+        check(array.getDouble(99) == 49.5, "unexpected element: " + array.getDouble(99));
+        
+        DoubleBuffer view = array.getDoubles(0);
+        check(view.get(10) == 5.0, "unexpected element: " + view.get(10));
+        
+        array.release();
+        check(array.isReleased(), "array not released");
+        
+        try
+        {
+            array.getDouble(0);
+            check(false, "read after release");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+        
+        // views obtained before the release remain valid
+        System.gc();
+        check(view.get(10) == 5.0, "unexpected element after release: " + view.get(10));
+        
+        System.out.println("MappedArrayCheck: OK");
+    }
+}
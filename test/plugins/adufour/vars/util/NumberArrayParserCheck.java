@@ -0,0 +1,122 @@
+package plugins.adufour.vars.util;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+/**
+ * Checks that {@link NumberArrayParser} gives exactly the same results as the standard JDK
+ * parsers, and that arrays written by {@link ArrayFormatter} are read back identically.
+ * 
+ * @author Alexandre Dufour
+ */
+public class NumberArrayParserCheck
+{
+    /**
+     * Tokens exercising the corner cases of the parser (signs, exponents, special values, long
+     * mantissas, sub-normal and out-of-range values)
+     */
+    private static final String[] SPECIAL_TOKENS = { "0", "-0", "-0.0", "+1", "1.", ".5", "-.5e-3", "1E10", "1e+10", "NaN", "Infinity", "-Infinity", "4.9e-324", "2e-324", "1.7976931348623157e308", "1e309", "123456789012345678901234567890", "0.1", "0.30000000000000004", "9007199254740993", "3.4028235e38", "1.4e-45", "00012.500" };
+    
+    public static void main(String[] args) throws IOException
+    {
+        Random random = new Random(42);
+        
+        // special tokens, parsed as doubles and floats
+        StringBuilder text = new StringBuilder();
+        for (String token : SPECIAL_TOKENS)
+            text.append(token).append("  \t\n");
+        
+        double[] doubles = NumberArrayParser.parseDoubles(text);
+        float[] floats = NumberArrayParser.parseFloats(text);
+        check(doubles.length == SPECIAL_TOKENS.length, "unexpected length: " + doubles.length);
+        for (int i = 0; i < SPECIAL_TOKENS.length; i++)
+        {
+            checkSame(doubles[i], Double.parseDouble(SPECIAL_TOKENS[i]), SPECIAL_TOKENS[i]);
+            checkSame(floats[i], Float.parseFloat(SPECIAL_TOKENS[i]), SPECIAL_TOKENS[i]);
+        }
+        
+        // random decimal tokens
+        String[] tokens = new String[10000];
+        text.setLength(0);
+        for (int i = 0; i < tokens.length; i++)
+        {
+            tokens[i] = (random.nextBoolean() ? "-" : "") + Math.abs(random.nextLong() % 100000000000L) + "." + random.nextInt(1000000) + "e" + (random.nextInt(80) - 40);
+            text.append(tokens[i]).append(' ');
+        }
+        doubles = NumberArrayParser.parseDoubles(text);
+        floats = NumberArrayParser.parseFloats(text);
+        for (int i = 0; i < tokens.length; i++)
+        {
+            checkSame(doubles[i], Double.parseDouble(tokens[i]), tokens[i]);
+            checkSame(floats[i], Float.parseFloat(tokens[i]), tokens[i]);
+        }
+        
+        // round-trips through the formatter
+        double[] doubleArray = new double[10000];
+        for (int i = 0; i < doubleArray.length; i++)
+            doubleArray[i] = i % 100 == 0 ? Double.NaN : Double.longBitsToDouble(random.nextLong());
+        doubles = NumberArrayParser.parseDoubles(format(doubleArray));
+        check(doubles.length == doubleArray.length, "unexpected length: " + doubles.length);
+        for (int i = 0; i < doubleArray.length; i++)
+            checkSame(doubles[i], doubleArray[i], "element " + i);
+        
+        float[] floatArray = new float[10000];
+        for (int i = 0; i < floatArray.length; i++)
+            floatArray[i] = Float.intBitsToFloat(random.nextInt());
+        floats = NumberArrayParser.parseFloats(format(floatArray));
+        for (int i = 0; i < floatArray.length; i++)
+            checkSame(floats[i], floatArray[i], "element " + i);
+        
+        int[] intArray = new int[10000];
+        for (int i = 0; i < intArray.length; i++)
+            intArray[i] = random.nextInt();
+        intArray[0] = Integer.MIN_VALUE;
+        intArray[1] = Integer.MAX_VALUE;
+        int[] ints = NumberArrayParser.parseInts(format(intArray));
+        for (int i = 0; i < intArray.length; i++)
+            check(ints[i] == intArray[i], "element " + i + ": " + ints[i] + " instead of " + intArray[i]);
+        
+        // empty input, and invalid tokens
+        check(NumberArrayParser.parseDoubles(" \n ").length == 0, "empty input not parsed as an empty array");
+        try
+        {
+            NumberArrayParser.parseInts("1 2.5 3");
+            check(false, "invalid integer parsed");
+        }
+        catch (NumberFormatException e)
+        {
+            // expected
+        }
+        
+        System.out.println("NumberArrayParserCheck: OK");
+    }
+    
+    /**
+     * Formats the specified array both in memory and through an {@link Appendable}, and checks that
+     * both texts are identical
+     */
+    private static String format(Object array) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        ArrayFormatter.format(sb, array, " ");
+        
+        StringWriter writer = new StringWriter();
+        ArrayFormatter.write(writer, array, " ");
+        check(sb.toString().equals(writer.toString()), "formatted texts differ");
+        
+        return sb.toString();
+    }
+    
+    private static void checkSame(double actual, double expected, String token)
+    {
+        check(Double.doubleToLongBits(actual) == Double.doubleToLongBits(expected), token + ": " + actual + " instead of " + expected);
+    }
+    
+    private static void checkSame(float actual, float expected, String token)
+    {
+        check(Float.floatToIntBits(actual) == Float.floatToIntBits(expected), token + ": " + actual + " instead of " + expected);
+    }
+}
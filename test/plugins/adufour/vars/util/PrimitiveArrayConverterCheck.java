@@ -0,0 +1,104 @@
+package plugins.adufour.vars.util;
+
+import static plugins.adufour.vars.util.Checks.check;
+
+import java.lang.reflect.Array;
+import java.util.Random;
+
+/**
+ * Checks that every specialized loop of {@link PrimitiveArrayConverter} gives the same result as a
+ * generic (reflective) conversion through <code>double</code>.
+ * 
+ * @author Alexandre Dufour
+ */
+public class PrimitiveArrayConverterCheck
+{
+    private static final Class<?>[] TYPES = { byte.class, short.class, int.class, long.class, float.class, double.class };
+    
+    public static void main(String[] args)
+    {
+        Random random = new Random(42);
+        
+        // values covering the narrowing corner cases (overflow, rounding, NaN, infinities)
+        double[] values = new double[1000];
+        double[] specials = { 0, -0.0, 0.5, -1.5, 127.9, 128, -129, 32768, 1e10, -1e19, 1e40, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE };
+        System.arraycopy(specials, 0, values, 0, specials.length);
+        for (int i = specials.length; i < values.length; i++)
+            values[i] = random.nextGaussian() * Math.pow(10, random.nextInt(20));
+        
+        for (Class<?> sourceType : TYPES)
+        {
+            Object source = convert(values, sourceType);
+            
+            for (Class<?> targetType : TYPES)
+            {
+                Object actual = PrimitiveArrayConverter.convert(source, targetType);
+                
+                if (sourceType == targetType)
+                {
+                    check(actual == null, "identity conversion of " + sourceType + "[] not ignored");
+                    continue;
+                }
+                
+                checkSame(actual, convert(source, targetType), sourceType + "[] to " + targetType + "[]");
+            }
+        }
+        
+        // boxed numbers of mixed types
+        Object[] boxed = { (byte) 1, (short) -2, 300, 1L << 40, 2.5f, -1e40, Double.NaN };
+        for (Class<?> targetType : TYPES)
+            checkSame(PrimitiveArrayConverter.convert(boxed, targetType), convert(boxed, targetType), "Number[] to " + targetType + "[]");
+        
+        // unsupported conversions
+        check(PrimitiveArrayConverter.convert(new boolean[1], double.class) == null, "boolean[] converted");
+        check(PrimitiveArrayConverter.convert("text", double.class) == null, "String converted");
+        
+        try
+        {
+            PrimitiveArrayConverter.convert(new Object[] { 1, "2" }, int.class);
+            check(false, "non-numeric element converted");
+        }
+        catch (ClassCastException e)
+        {
+            // expected
+        }
+        
+        System.out.println("PrimitiveArrayConverterCheck: OK");
+    }
+    
+    /**
+     * Reference conversion: reads each element as a double, then casts it to the target type
+     */
+    private static Object convert(Object source, Class<?> targetType)
+    {
+        int n = Array.getLength(source);
+        Object target = Array.newInstance(targetType, n);
+        
+        for (int i = 0; i < n; i++)
+        {
+            Object element = Array.get(source, i);
+            double value = ((Number) element).doubleValue();
+            
+            if (targetType == byte.class) Array.setByte(target, i, (byte) value);
+            else if (targetType == short.class) Array.setShort(target, i, (short) value);
+            else if (targetType == int.class) Array.setInt(target, i, (int) value);
+            else if (targetType == long.class) Array.setLong(target, i, (long) value);
+            else if (targetType == float.class) Array.setFloat(target, i, (float) value);
+            else Array.setDouble(target, i, value);
+        }
+        
+        return target;
+    }
+    
+    private static void checkSame(Object actual, Object expected, String conversion)
+    {
+        check(actual != null && actual.getClass() == expected.getClass(), conversion + ": unexpected result " + actual);
+        
+        for (int i = 0; i < Array.getLength(expected); i++)
+        {
+            double a = ((Number) Array.get(actual, i)).doubleValue();
+            double e = ((Number) Array.get(expected, i)).doubleValue();
+            check(Double.doubleToLongBits(a) == Double.doubleToLongBits(e), conversion + ", element " + i + ": " + a + " instead of " + e);
+        }
+    }
+}